@@ -15,7 +15,10 @@ module.exports = function(grunt) {
     testFolder: 'src/__tests__',
     javaLibFolder: 'src/java/lib',
     javaSource: 'src/java/tests/com/facebook/csslayout/*.java',
-    javaTestFiles: 'org.junit.runner.JUnitCore com.facebook.csslayout.LayoutEngineTest com.facebook.csslayout.LayoutCachingTest com.facebook.csslayout.CSSNodeTest'
+    javaTestFiles: 'org.junit.runner.JUnitCore com.facebook.csslayout.LayoutEngineTest com.facebook.csslayout.LayoutCachingTest com.facebook.csslayout.CSSNodeTest com.facebook.csslayout.LayoutAllocationTest com.facebook.csslayout.LayoutStatsTest com.facebook.csslayout.LayoutTracerTest com.facebook.csslayout.LayoutCaptureTest com.facebook.csslayout.RandomTreeGeneratorTest com.facebook.csslayout.MeasureProfilerTest com.facebook.csslayout.SubtreeMemoTest com.facebook.csslayout.SharedMeasureCacheTest com.facebook.csslayout.PersistentLayoutCacheTest com.facebook.csslayout.SpacingTest com.facebook.csslayout.ChangedNodesTest',
+    javaJfrSource: 'src/java/jfr-tests/com/facebook/csslayout/*.java',
+    javaJfrTestFiles: 'org.junit.runner.JUnitCore com.facebook.csslayout.JfrLayoutTracerTest',
+    javaBenchmarkFolder: 'src/java-benchmarks'
   };
 
   // C compilation configuration
@@ -25,12 +28,16 @@ module.exports = function(grunt) {
     config.cTestCompile = 'cl -nologo -Zi -Tpsrc/__tests__/Layout-test.c -Tpsrc/Layout.c -Tpsrc/Layout-test-utils.c -link -incremental:no -out:"<%= config.cTestOutput %>"';
     config.cTestExecute = '<%= config.cTestOutput %>';
     config.cTestClean = ['<%= config.cTestOutput %>', '*.obj', '*.pdb'];
+    config.cBenchmarkOutput = '<%= config.javaBenchmarkFolder %>/target/layout-benchmark.exe';
+    config.cBenchmarkCompile = 'cl -nologo -O2 -Tp<%= config.javaBenchmarkFolder %>/native/layout-benchmark.c -Tpsrc/Layout.c -link -incremental:no -out:"<%= config.cBenchmarkOutput %>"';
   } else {
     // GCC build (OSX, Linux, ...), assumes gcc is in the path.
     config.cTestOutput = 'c_test';
     config.cTestCompile = 'gcc -std=c99 -Werror -Wno-padded src/__tests__/Layout-test.c src/Layout.c src/Layout-test-utils.c -lm -o "./<%= config.cTestOutput %>"';
     config.cTestExecute = './<%= config.cTestOutput %>';
     config.cTestClean = ['<%= config.cTestOutput %>'];
+    config.cBenchmarkOutput = '<%= config.javaBenchmarkFolder %>/target/layout-benchmark';
+    config.cBenchmarkCompile = 'gcc -std=c99 -O2 -Werror -Wno-padded <%= config.javaBenchmarkFolder %>/native/layout-benchmark.c src/Layout.c -lm -o "./<%= config.cBenchmarkOutput %>"';
   }
 
   grunt.initConfig({
@@ -143,6 +150,27 @@ module.exports = function(grunt) {
       javaTestExecute: {
         command: 'java -cp ./src/java/src<%= config.delimiter %>./src/java/tests<%= config.delimiter %><%= config.javaLibFolder %>/junit4.jar<%= config.delimiter %><%= config.javaLibFolder %>/infer-annotations-1.4.jar <%= config.javaTestFiles %>'
       },
+      javaJfrCompile: {
+        command: 'javac -cp <%= config.javaLibFolder %>/junit4.jar<%= config.delimiter %><%= config.javaLibFolder %>/jsr305.jar<%= config.delimiter %><%= config.javaLibFolder %>/infer-annotations-1.4.jar' + ' -sourcepath ./src/java/src<%= config.delimiter %>./src/java/jfr<%= config.delimiter %>./src/java/jfr-tests' + ' <%= config.javaJfrSource %>'
+      },
+      javaJfrTestExecute: {
+        command: 'java -cp ./src/java/src<%= config.delimiter %>./src/java/jfr<%= config.delimiter %>./src/java/jfr-tests<%= config.delimiter %><%= config.javaLibFolder %>/junit4.jar<%= config.delimiter %><%= config.javaLibFolder %>/infer-annotations-1.4.jar <%= config.javaJfrTestFiles %>'
+      },
+      javaBenchmarkCompile: {
+        command: 'mvn -B -q -f <%= config.javaBenchmarkFolder %>/pom.xml package'
+      },
+      javaBenchmarkExecute: {
+        command: 'java -jar <%= config.javaBenchmarkFolder %>/target/benchmarks.jar'
+      },
+      cBenchmarkCompile: {
+        command: config.cBenchmarkCompile
+      },
+      javaNativeComparison: {
+        command: 'java -cp <%= config.javaBenchmarkFolder %>/target/benchmarks.jar com.facebook.csslayout.NativeComparison <%= config.cBenchmarkOutput %>'
+      },
+      javaAllocationCheck: {
+        command: 'java -cp <%= config.javaBenchmarkFolder %>/target/benchmarks.jar com.facebook.csslayout.AllocationCheck'
+      },
       javaPackage: {
         command: 'jar cf <%= config.distFolder %>/<%= config.libName %>.jar <%= config.javaSource %>'
       }
@@ -157,6 +185,18 @@ module.exports = function(grunt) {
   // Compiles and runs the Java tests
   grunt.registerTask('test-java', ['shell:javaCompile', 'shell:javaTestExecute', 'clean:javaTest']);
 
+  // Compiles and runs the tests of the Java Flight Recorder tracer, requires a JDK with jdk.jfr
+  grunt.registerTask('test-java-jfr', ['shell:javaJfrCompile', 'shell:javaJfrTestExecute', 'clean:javaTest']);
+
+  // Compiles and runs the Java benchmarks, requires Maven
+  grunt.registerTask('benchmark-java', ['shell:javaBenchmarkCompile', 'shell:javaBenchmarkExecute']);
+
+  // Fails if laying out an already built tree allocates memory, requires Maven
+  grunt.registerTask('benchmark-java-allocations', ['shell:javaBenchmarkCompile', 'shell:javaAllocationCheck']);
+
+  // Compares the throughput and the output of the Java and C engines, requires Maven and a C compiler
+  grunt.registerTask('benchmark-native', ['shell:javaBenchmarkCompile', 'shell:cBenchmarkCompile', 'shell:javaNativeComparison']);
+
   // Compiles and runs the C tests
   grunt.registerTask('test-c', ['shell:cCompile', 'shell:cTestExecute', 'clean:cTest']);
 
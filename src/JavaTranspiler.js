@@ -41,12 +41,12 @@ function __transpileToJavaCommon(code) {
     .replace(/getLeadingPaddingAndBorder\((.+?),\s*(.+?)\)/g, '\(getLeadingPadding($1, $2) + getLeadingBorder($1, $2)\)')
     .replace(/getTrailingPaddingAndBorder\((.+?),\s*(.+?)\)/g, '\(getTrailingPadding($1, $2) + getTrailingBorder($1, $2)\)')
     .replace(/getDimWithMargin\((.+?),\s*(.+?)\)/g, '\($1.layout.dimensions[dim[$2]] + getLeadingMargin($1, $2) + getTrailingMargin($1, $2)\)')
-    .replace(/getLeadingMargin\((.+?),\s*(.+?)\)/g, '$1.style.margin.getWithFallback(leadingSpacing[$2], leading[$2])')
-    .replace(/getTrailingMargin\((.+?),\s*(.+?)\)/g, '$1.style.margin.getWithFallback(trailingSpacing[$2], trailing[$2])')
-    .replace(/getLeadingPadding\((.+?),\s*(.+?)\)/g, '$1.style.padding.getWithFallback(leadingSpacing[$2], leading[$2])')
-    .replace(/getTrailingPadding\((.+?),\s*(.+?)\)/g, '$1.style.padding.getWithFallback(trailingSpacing[$2], trailing[$2])')
-    .replace(/getLeadingBorder\((.+?),\s*(.+?)\)/g, '$1.style.border.getWithFallback(leadingSpacing[$2], leading[$2])')
-    .replace(/getTrailingBorder\((.+?),\s*(.+?)\)/g, '$1.style.border.getWithFallback(trailingSpacing[$2], trailing[$2])')
+    .replace(/getLeadingMargin\((.+?),\s*(.+?)\)/g, '$1.style.margin.resolvedLeading[$2]')
+    .replace(/getTrailingMargin\((.+?),\s*(.+?)\)/g, '$1.style.margin.resolvedTrailing[$2]')
+    .replace(/getLeadingPadding\((.+?),\s*(.+?)\)/g, '$1.style.padding.resolvedLeading[$2]')
+    .replace(/getTrailingPadding\((.+?),\s*(.+?)\)/g, '$1.style.padding.resolvedTrailing[$2]')
+    .replace(/getLeadingBorder\((.+?),\s*(.+?)\)/g, '$1.style.border.resolvedLeading[$2]')
+    .replace(/getTrailingBorder\((.+?),\s*(.+?)\)/g, '$1.style.border.resolvedTrailing[$2]')
     .replace(/isRowDirection\((.+?)\)/g, '\($1 == CSS_FLEX_DIRECTION_ROW || $1 == CSS_FLEX_DIRECTION_ROW_REVERSE\)')
     .replace(/isUndefined\((.+?)\)/g, 'Float.isNaN\($1\)')
     .replace(/\/\*\(c\)!([^*]+)\*\//g, '')
@@ -117,6 +117,10 @@ var JavaTranspiler = {
       __transpileToJavaCommon(code)
         .replace(/function\s+layoutNode.*/, '')
         .replace('node.style.measure', 'node.measure')
+        .replace('resolveDirection(node, parentDirection)', 'node.resolvedStyle.direction')
+        .replace('resolveAxis(getFlexDirection(node), direction)', 'node.resolvedStyle.mainAxis')
+        .replace('getCrossFlexDirection(mainAxis, direction)', 'node.resolvedStyle.crossAxis')
+        .replace('resolveAxis(CSS_FLEX_DIRECTION_ROW, direction)', 'node.resolvedStyle.rowAxis')
         .replace(/\.children\.length/g, '.getChildCount()')
         .replace(/node.children\[i\]/g, 'node.getChildAt(i)')
         .replace(/node.children\[ii\]/g, 'node.getChildAt(ii)')
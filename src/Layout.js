@@ -493,7 +493,7 @@ var computeLayout = (function() {
       if (isRowUndefined || isColumnUndefined) {
         var/*css_dim_t*/ measureDim = node.style.measure(
           /*(c)!node->context,*/
-          /*(java)!layoutContext.measureOutput,*/
+          /*(java)!layoutContext,*/
           width
         );
         if (isRowUndefined) {
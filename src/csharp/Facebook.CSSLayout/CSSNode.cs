@@ -140,7 +140,7 @@ namespace Facebook.CSSLayout
             get { return mMeasureFunction != null; }
         }
 
-        internal MeasureOutput measure(MeasureOutput measureOutput, float width)
+        internal MeasureOutput measure(CSSLayoutContext layoutContext, float width)
         {
             if (!IsMeasureDefined)
             {
@@ -300,7 +300,7 @@ namespace Facebook.CSSLayout
         if (isRowUndefined || isColumnUndefined) {
           MeasureOutput measureDim = node.measure(
             
-            layoutContext.measureOutput,
+            layoutContext,
             width
           );
           if (isRowUndefined) {
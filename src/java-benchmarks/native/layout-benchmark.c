@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+
+// Lays out a tree exported by NativeComparison.java with the C engine.
+//
+// Usage: layout-benchmark <tree file> <warmup passes> <measured passes> <layout file>
+//
+// Prints the average duration of a pass in nanoseconds and writes the layout of every node, in
+// depth first order, to the layout file. All numbers are big endian like Java's DataOutputStream.
+
+#define _POSIX_C_SOURCE 199309L
+
+#include <math.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <time.h>
+
+#include "../../Layout.h"
+
+typedef struct {
+  css_node_t *children;
+  float text_width;
+  float line_height;
+} node_context_t;
+
+static css_node_t *nodes;
+static node_context_t *contexts;
+static int node_count;
+static int next_node;
+
+static uint32_t read_u32(FILE *file) {
+  unsigned char bytes[4];
+  if (fread(bytes, 1, 4, file) != 4) {
+    fprintf(stderr, "Unexpected end of tree file\n");
+    exit(1);
+  }
+  return ((uint32_t)bytes[0] << 24) | ((uint32_t)bytes[1] << 16) |
+      ((uint32_t)bytes[2] << 8) | (uint32_t)bytes[3];
+}
+
+static int read_int(FILE *file) {
+  return (int)read_u32(file);
+}
+
+static float read_float(FILE *file) {
+  uint32_t bits = read_u32(file);
+  float value;
+  memcpy(&value, &bits, sizeof(value));
+  return value;
+}
+
+static void write_float(FILE *file, float value) {
+  uint32_t bits;
+  memcpy(&bits, &value, sizeof(bits));
+  unsigned char bytes[4] = {
+    (unsigned char)(bits >> 24),
+    (unsigned char)(bits >> 16),
+    (unsigned char)(bits >> 8),
+    (unsigned char)bits
+  };
+  fwrite(bytes, 1, 4, file);
+}
+
+static void read_floats(FILE *file, float *values, int count) {
+  for (int i = 0; i < count; ++i) {
+    values[i] = read_float(file);
+  }
+}
+
+static css_node_t* get_child(void *context, int i) {
+  return &((node_context_t *)context)->children[i];
+}
+
+static bool is_dirty(void *context) {
+  (void)context; // remove unused warning
+  return true;
+}
+
+// Same as RandomTreeGenerator.TextMeasureFunction
+static css_dim_t measure_text(void *context, float width) {
+  node_context_t *node_context = (node_context_t *)context;
+  css_dim_t dim;
+  if (isUndefined(width) || width >= node_context->text_width) {
+    dim.dimensions[CSS_WIDTH] = node_context->text_width;
+    dim.dimensions[CSS_HEIGHT] = node_context->line_height;
+  } else {
+    float clamped_width = fmaxf(width, 1);
+    dim.dimensions[CSS_WIDTH] = clamped_width;
+    dim.dimensions[CSS_HEIGHT] =
+      node_context->line_height * (float)ceil(node_context->text_width / clamped_width);
+  }
+  return dim;
+}
+
+// The children of a node are allocated contiguously when the node is read, so that get_child is a
+// simple array access like in the test utilities.
+static void read_node(FILE *file, css_node_t *node) {
+  css_style_t *style = &node->style;
+  node_context_t *context = &contexts[node - nodes];
+  init_css_node(node);
+  node->context = context;
+  node->get_child = get_child;
+  node->is_dirty = is_dirty;
+
+  style->direction = (css_direction_t)fgetc(file);
+  style->flex_direction = (css_flex_direction_t)fgetc(file);
+  style->justify_content = (css_justify_t)fgetc(file);
+  style->align_content = (css_align_t)fgetc(file);
+  style->align_items = (css_align_t)fgetc(file);
+  style->align_self = (css_align_t)fgetc(file);
+  style->position_type = (css_position_type_t)fgetc(file);
+  style->flex_wrap = (css_wrap_type_t)fgetc(file);
+  style->flex = read_float(file);
+  read_floats(file, style->margin, 6);
+  read_floats(file, style->padding, 6);
+  read_floats(file, style->border, 6);
+  read_floats(file, style->position, 4);
+  read_floats(file, style->dimensions, 2);
+  read_floats(file, style->minDimensions, 2);
+  read_floats(file, style->maxDimensions, 2);
+
+  if (fgetc(file)) {
+    context->text_width = read_float(file);
+    context->line_height = read_float(file);
+    node->measure = measure_text;
+  }
+
+  node->children_count = read_int(file);
+  if (next_node + node->children_count > node_count) {
+    fprintf(stderr, "Invalid tree file\n");
+    exit(1);
+  }
+  context->children = &nodes[next_node];
+  next_node += node->children_count;
+  for (int i = 0; i < node->children_count; ++i) {
+    read_node(file, &context->children[i]);
+  }
+}
+
+static void reset_layout(css_node_t *node) {
+  node->layout.position[CSS_LEFT] = 0;
+  node->layout.position[CSS_TOP] = 0;
+  node->layout.dimensions[CSS_WIDTH] = CSS_UNDEFINED;
+  node->layout.dimensions[CSS_HEIGHT] = CSS_UNDEFINED;
+  node->layout.direction = CSS_DIRECTION_INHERIT;
+  node->line_index = 0;
+  node->next_absolute_child = NULL;
+  node->next_flex_child = NULL;
+}
+
+static void write_layout(FILE *file, css_node_t *node) {
+  write_float(file, node->layout.position[CSS_TOP]);
+  write_float(file, node->layout.position[CSS_LEFT]);
+  write_float(file, node->layout.dimensions[CSS_WIDTH]);
+  write_float(file, node->layout.dimensions[CSS_HEIGHT]);
+  for (int i = 0; i < node->children_count; ++i) {
+    write_layout(file, node->get_child(node->context, i));
+  }
+}
+
+static int64_t now_nanos(void) {
+  struct timespec time;
+  clock_gettime(CLOCK_MONOTONIC, &time);
+  return (int64_t)time.tv_sec * 1000000000 + time.tv_nsec;
+}
+
+int main(int argc, char **argv) {
+  if (argc != 5) {
+    fprintf(stderr, "Usage: %s <tree file> <warmup passes> <measured passes> <layout file>\n",
+      argv[0]);
+    return 1;
+  }
+
+  FILE *input = fopen(argv[1], "rb");
+  if (!input) {
+    fprintf(stderr, "Could not open %s\n", argv[1]);
+    return 1;
+  }
+  node_count = read_int(input);
+  nodes = (css_node_t *)calloc((size_t)node_count, sizeof(css_node_t));
+  contexts = (node_context_t *)calloc((size_t)node_count, sizeof(node_context_t));
+  next_node = 1;
+  read_node(input, &nodes[0]);
+  fclose(input);
+
+  int warmup_passes = atoi(argv[2]);
+  int measured_passes = atoi(argv[3]);
+  int64_t elapsed_nanos = 0;
+  for (int pass = 0; pass < warmup_passes + measured_passes; ++pass) {
+    for (int i = 0; i < node_count; ++i) {
+      reset_layout(&nodes[i]);
+    }
+
+    int64_t start = now_nanos();
+    layoutNode(&nodes[0], CSS_UNDEFINED, (css_direction_t)-1);
+    if (pass >= warmup_passes) {
+      elapsed_nanos += now_nanos() - start;
+    }
+  }
+  printf("%lld\n", (long long)(elapsed_nanos / (measured_passes > 0 ? measured_passes : 1)));
+
+  FILE *output = fopen(argv[4], "wb");
+  if (!output) {
+    fprintf(stderr, "Could not open %s\n", argv[4]);
+    return 1;
+  }
+  write_layout(output, &nodes[0]);
+  fclose(output);
+
+  free(nodes);
+  free(contexts);
+  return 0;
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.util.Collection;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the warm relayout benchmarks of {@link LayoutEngineBenchmark} with the JMH GC profiler and
+ * exits with a non zero status if any of them allocates on the heap. Once a tree has been built,
+ * laying it out again must not allocate. Cold layouts are excluded since building the tree is part
+ * of each of their invocations.
+ */
+public class AllocationCheck {
+
+  private static final String ALLOCATION_RESULT = "gc.alloc.rate.norm";
+
+  /**
+   * JMH measures allocations per iteration and divides them by the number of operations, anything
+   * below a byte per operation is noise from the harness itself.
+   */
+  private static final double MAX_BYTES_PER_OPERATION = 1.0;
+
+  public static void main(String[] args) throws RunnerException {
+    Options options = new OptionsBuilder()
+        .include(LayoutEngineBenchmark.class.getSimpleName() + ".(cached|dirtyLeaf|relayout)$")
+        .addProfiler(GCProfiler.class)
+        .warmupIterations(3)
+        .warmupTime(TimeValue.seconds(1))
+        .measurementIterations(3)
+        .measurementTime(TimeValue.seconds(1))
+        .forks(1)
+        .build();
+
+    Collection<RunResult> results = new Runner(options).run();
+
+    int failures = 0;
+    System.out.println();
+    for (RunResult runResult : results) {
+      Result allocations = runResult.getSecondaryResults().get(ALLOCATION_RESULT);
+      if (allocations == null) {
+        throw new IllegalStateException("GC profiler did not report " + ALLOCATION_RESULT);
+      }
+      boolean allocates = allocations.getScore() >= MAX_BYTES_PER_OPERATION;
+      if (allocates) {
+        failures++;
+      }
+      System.out.println(String.format(
+          "%-6s %s shape=%s: %.3f %s",
+          allocates ? "FAIL" : "OK",
+          runResult.getParams().getBenchmark(),
+          runResult.getParams().getParam("shape"),
+          allocations.getScore(),
+          allocations.getScoreUnit()));
+    }
+
+    if (failures > 0) {
+      System.err.println(failures + " warm relayout benchmark(s) allocated memory");
+      System.exit(1);
+    }
+  }
+}
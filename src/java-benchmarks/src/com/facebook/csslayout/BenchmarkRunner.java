@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the layout benchmarks and prints, next to the usual JMH output, the throughput and the
+ * average cost per node of each shape. Accepts the regular JMH command line options, e.g.
+ * {@code java -jar target/benchmarks.jar dirtyLeaf -p shape=WIDE}.
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    OptionsBuilder builder = new OptionsBuilder();
+    if (commandLine.getIncludes().isEmpty()) {
+      builder.include(LayoutEngineBenchmark.class.getSimpleName());
+    }
+    Options options = builder
+        .parent(commandLine)
+        .timeUnit(TimeUnit.NANOSECONDS)
+        .build();
+
+    Collection<RunResult> results = new Runner(options).run();
+    printPerNodeSummary(results);
+  }
+
+  private static void printPerNodeSummary(Collection<RunResult> results) {
+    System.out.println();
+    System.out.println(String.format(
+        "%-40s %-10s %8s %14s %12s",
+        "Benchmark",
+        "Shape",
+        "Nodes",
+        "ops/s",
+        "ns/node"));
+    for (RunResult runResult : results) {
+      String shape = runResult.getParams().getParam("shape");
+      if (shape == null) {
+        continue;
+      }
+      Result primary = runResult.getPrimaryResult();
+      if (!"ns/op".equals(primary.getScoreUnit())) {
+        continue;
+      }
+      int nodes = BenchmarkTrees.countNodes(
+          BenchmarkTrees.build(BenchmarkTrees.Shape.valueOf(shape)));
+      double nanosPerOp = primary.getScore();
+      String benchmark = runResult.getParams().getBenchmark();
+      System.out.println(String.format(
+          "%-40s %-10s %8d %14.1f %12.2f",
+          benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1),
+          shape,
+          nodes,
+          TimeUnit.SECONDS.toNanos(1) / nanosPerOp,
+          nanosPerOp / nodes));
+    }
+  }
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+/**
+ * Builders for the canonical tree shapes used by the layout benchmarks. Every shape is built
+ * deterministically so that numbers are comparable between runs and between engine changes.
+ */
+public class BenchmarkTrees {
+
+  public static enum Shape {
+    /**
+     * A single column with a large number of fixed size leaves.
+     */
+    WIDE,
+
+    /**
+     * A long chain of nested containers, each with a padded leaf sibling.
+     */
+    DEEP,
+
+    /**
+     * Rows of flexible children with a mix of flex ratios and min/max bounds.
+     */
+    FLEX,
+
+    /**
+     * A single wrapping row with children of varying sizes spread over many lines.
+     */
+    FLEX_WRAP,
+
+    /**
+     * Containers whose children are absolutely positioned with all four offsets set.
+     */
+    ABSOLUTE,
+
+    /**
+     * Rows of text-like leaves that need a measure function to compute their size.
+     */
+    MEASURE,
+
+    /**
+     * A tree generated by {@link RandomTreeGenerator} with a fixed seed, mixing all of the above.
+     */
+    RANDOM,
+  }
+
+  public static final float TEXT_WIDTH = 240;
+  public static final float LINE_HEIGHT = 18;
+
+  /**
+   * Measure function behaving like a single line of text of {@link #TEXT_WIDTH} that wraps into
+   * lines of {@link #LINE_HEIGHT} when the given width is smaller.
+   */
+  public static final CSSNode.MeasureFunction TEXT_MEASURE_FUNCTION =
+      new RandomTreeGenerator.TextMeasureFunction(TEXT_WIDTH, LINE_HEIGHT);
+
+  private static final float ROOT_WIDTH = 1080;
+
+  public static CSSNode build(Shape shape) {
+    switch (shape) {
+      case WIDE:
+        return buildWide(2000);
+      case DEEP:
+        return buildDeep(400);
+      case FLEX:
+        return buildFlex(200, 10);
+      case FLEX_WRAP:
+        return buildFlexWrap(2000);
+      case ABSOLUTE:
+        return buildAbsolute(200, 10);
+      case MEASURE:
+        return buildMeasure(400, 4);
+      case RANDOM:
+        return buildRandom(2000, 0);
+      default:
+        throw new IllegalArgumentException("Unknown shape: " + shape);
+    }
+  }
+
+  public static CSSNode buildWide(int childCount) {
+    CSSNode root = newRoot();
+    for (int i = 0; i < childCount; i++) {
+      CSSNode child = new CSSNode();
+      child.setStyleHeight(20 + (i % 7));
+      child.setMargin(Spacing.BOTTOM, 1);
+      root.addChildAt(child, i);
+    }
+    return root;
+  }
+
+  public static CSSNode buildDeep(int depth) {
+    CSSNode root = newRoot();
+    CSSNode parent = root;
+    for (int i = 0; i < depth; i++) {
+      CSSNode container = new CSSNode();
+      container.setPadding(Spacing.ALL, 1);
+      container.setFlexDirection(i % 2 == 0 ? CSSFlexDirection.ROW : CSSFlexDirection.COLUMN);
+
+      CSSNode leaf = new CSSNode();
+      leaf.setStyleWidth(10);
+      leaf.setStyleHeight(10);
+
+      parent.addChildAt(leaf, 0);
+      parent.addChildAt(container, 1);
+      parent = container;
+    }
+    return root;
+  }
+
+  public static CSSNode buildFlex(int rowCount, int childrenPerRow) {
+    CSSNode root = newRoot();
+    for (int i = 0; i < rowCount; i++) {
+      CSSNode row = new CSSNode();
+      row.setFlexDirection(CSSFlexDirection.ROW);
+      row.setStyleHeight(40);
+      row.setPadding(Spacing.HORIZONTAL, 8);
+      for (int j = 0; j < childrenPerRow; j++) {
+        CSSNode child = new CSSNode();
+        child.setFlex(1 + (j % 3));
+        child.setMargin(Spacing.HORIZONTAL, 2);
+        if (j % 4 == 0) {
+          child.style.minWidth = 40;
+        } else if (j % 4 == 1) {
+          child.style.maxWidth = 80;
+        }
+        row.addChildAt(child, j);
+      }
+      root.addChildAt(row, i);
+    }
+    return root;
+  }
+
+  public static CSSNode buildFlexWrap(int childCount) {
+    CSSNode root = newRoot();
+    root.setFlexDirection(CSSFlexDirection.ROW);
+    root.setWrap(CSSWrap.WRAP);
+    root.setAlignItems(CSSAlign.FLEX_START);
+    for (int i = 0; i < childCount; i++) {
+      CSSNode child = new CSSNode();
+      child.setStyleWidth(30 + (i % 5) * 11);
+      child.setStyleHeight(20 + (i % 3) * 6);
+      child.setMargin(Spacing.ALL, 2);
+      root.addChildAt(child, i);
+    }
+    return root;
+  }
+
+  public static CSSNode buildAbsolute(int containerCount, int childrenPerContainer) {
+    CSSNode root = newRoot();
+    for (int i = 0; i < containerCount; i++) {
+      CSSNode container = new CSSNode();
+      container.setStyleHeight(100);
+      container.setBorder(Spacing.ALL, 1);
+      for (int j = 0; j < childrenPerContainer; j++) {
+        CSSNode child = new CSSNode();
+        child.setPositionType(CSSPositionType.ABSOLUTE);
+        child.setPositionLeft(j);
+        child.setPositionTop(j);
+        child.setPositionRight(2 * j);
+        child.setPositionBottom(2 * j);
+        container.addChildAt(child, j);
+      }
+      root.addChildAt(container, i);
+    }
+    return root;
+  }
+
+  public static CSSNode buildMeasure(int rowCount, int textsPerRow) {
+    CSSNode root = newRoot();
+    for (int i = 0; i < rowCount; i++) {
+      CSSNode row = new CSSNode();
+      row.setFlexDirection(i % 2 == 0 ? CSSFlexDirection.ROW : CSSFlexDirection.COLUMN);
+      row.setPadding(Spacing.ALL, 4);
+      for (int j = 0; j < textsPerRow; j++) {
+        CSSNode text = new CSSNode();
+        text.setMeasureFunction(TEXT_MEASURE_FUNCTION);
+        text.setMargin(Spacing.RIGHT, 4);
+        row.addChildAt(text, j);
+      }
+      root.addChildAt(row, i);
+    }
+    return root;
+  }
+
+  public static CSSNode buildRandom(int nodeCount, long seed) {
+    RandomTreeGenerator.Options options = new RandomTreeGenerator.Options();
+    options.maxNodes = nodeCount;
+    options.childChance = 0.9f;
+    options.maxDepth = 12;
+    options.negativeSizes = false;
+    CSSNode root = new RandomTreeGenerator(seed, options).generate();
+    root.setStyleWidth(ROOT_WIDTH);
+    return root;
+  }
+
+  public static int countNodes(CSSNode node) {
+    int count = 1;
+    for (int i = 0; i < node.getChildCount(); i++) {
+      count += countNodes(node.getChildAt(i));
+    }
+    return count;
+  }
+
+  /**
+   * Returns the deepest last descendant of the given node, used as the leaf that gets dirtied.
+   */
+  public static CSSNode findLastLeaf(CSSNode node) {
+    CSSNode current = node;
+    while (current.getChildCount() > 0) {
+      current = current.getChildAt(current.getChildCount() - 1);
+    }
+    return current;
+  }
+
+  /**
+   * Marks the layout of the whole tree as seen so that it can be mutated again.
+   */
+  public static void markLayoutSeen(CSSNode node) {
+    if (node.hasNewLayout()) {
+      node.markLayoutSeen();
+    }
+    for (int i = 0; i < node.getChildCount(); i++) {
+      markLayoutSeen(node.getChildAt(i));
+    }
+  }
+
+  /**
+   * Marks the layout of the given node and all of its ancestors as seen. This is the minimum
+   * needed before mutating the node, since dirtying only walks up the tree.
+   */
+  public static void markPathSeen(CSSNode node) {
+    CSSNode current = node;
+    while (current != null) {
+      if (current.hasNewLayout()) {
+        current.markLayoutSeen();
+      }
+      current = current.getParent();
+    }
+  }
+
+  private static CSSNode newRoot() {
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(ROOT_WIDTH);
+    return root;
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link LayoutEngine#layoutNode} over the shapes in {@link BenchmarkTrees}.
+ *
+ * <ul>
+ *   <li>{@code cold}: the first layout of a freshly built tree, nothing is cached.</li>
+ *   <li>{@code cached}: relayout of a tree that has not changed since the last pass.</li>
+ *   <li>{@code dirtyLeaf}: relayout after changing the height of a single leaf.</li>
+ *   <li>{@code relayout}: relayout of every node after changing the width of the root.</li>
+ * </ul>
+ *
+ * Run through {@link BenchmarkRunner} to also get the cost per node.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LayoutEngineBenchmark {
+
+  @State(Scope.Thread)
+  public static class ColdTree {
+
+    @Param({"WIDE", "DEEP", "FLEX", "FLEX_WRAP", "ABSOLUTE", "MEASURE", "RANDOM"})
+    public BenchmarkTrees.Shape shape;
+
+    public final CSSLayoutContext layoutContext = new CSSLayoutContext();
+    public CSSNode root;
+
+    @Setup(Level.Invocation)
+    public void buildTree() {
+      root = BenchmarkTrees.build(shape);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class WarmTree {
+
+    @Param({"WIDE", "DEEP", "FLEX", "FLEX_WRAP", "ABSOLUTE", "MEASURE", "RANDOM"})
+    public BenchmarkTrees.Shape shape;
+
+    public final CSSLayoutContext layoutContext = new CSSLayoutContext();
+    public CSSNode root;
+    public CSSNode leaf;
+    public boolean toggle;
+    public float rootWidth;
+
+    @Setup(Level.Trial)
+    public void buildTree() {
+      root = BenchmarkTrees.build(shape);
+      leaf = BenchmarkTrees.findLastLeaf(root);
+      rootWidth = root.getStyleWidth();
+      root.calculateLayout(layoutContext);
+      BenchmarkTrees.markLayoutSeen(root);
+    }
+  }
+
+  @Benchmark
+  public CSSNode cold(ColdTree state) {
+    state.root.calculateLayout(state.layoutContext);
+    return state.root;
+  }
+
+  @Benchmark
+  public CSSNode cached(WarmTree state) {
+    state.root.calculateLayout(state.layoutContext);
+    return state.root;
+  }
+
+  @Benchmark
+  public CSSNode dirtyLeaf(WarmTree state) {
+    BenchmarkTrees.markPathSeen(state.leaf);
+    state.toggle = !state.toggle;
+    state.leaf.setStyleHeight(state.toggle ? 11 : 10);
+    state.root.calculateLayout(state.layoutContext);
+    return state.root;
+  }
+
+  @Benchmark
+  public CSSNode relayout(WarmTree state) {
+    BenchmarkTrees.markPathSeen(state.root);
+    state.toggle = !state.toggle;
+    state.root.setStyleWidth(state.toggle ? state.rootWidth - 1 : state.rootWidth);
+    state.root.calculateLayout(state.layoutContext);
+    return state.root;
+  }
+}
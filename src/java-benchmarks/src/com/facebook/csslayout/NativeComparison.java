@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lays out the benchmark trees with both the Java engine and the C engine of src/Layout.c, built
+ * from native/layout-benchmark.c, and reports how their throughput compares. It exits with a non
+ * zero status if the two engines don't produce the same layout for any of the trees.
+ *
+ * Both engines do a full layout of the tree on every pass, since the C engine has no equivalent of
+ * the dirty tracking of {@link CSSNode}. Usage:
+ *
+ *   NativeComparison <layout-benchmark binary> [warmup passes] [measured passes] [random trees]
+ *
+ * Random trees from {@link RandomTreeGenerator} are only compared when asked for: the engines
+ * still lay out some of their corner cases differently, such as undefined dimensions bounded by a
+ * min or max dimension, where fmaxf and Math.max don't treat NaN the same way.
+ */
+public class NativeComparison {
+
+  private static final float TOLERANCE = 0.01f;
+
+  private static class Workload {
+
+    private final String mName;
+    private final CSSNode mRoot;
+
+    private Workload(String name, CSSNode root) {
+      mName = name;
+      mRoot = root;
+    }
+  }
+
+  public static void main(String[] args) throws IOException, InterruptedException {
+    if (args.length < 1) {
+      System.err.println(
+          "Usage: NativeComparison <layout-benchmark binary> " +
+              "[warmup passes] [measured passes] [random trees]");
+      System.exit(2);
+    }
+    String binary = args[0];
+    int warmupPasses = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+    int measuredPasses = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+    int randomTrees = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+
+    List<Workload> workloads = new ArrayList<>();
+    for (BenchmarkTrees.Shape shape : BenchmarkTrees.Shape.values()) {
+      if (shape != BenchmarkTrees.Shape.RANDOM) {
+        workloads.add(new Workload(shape.name(), BenchmarkTrees.build(shape)));
+      }
+    }
+    for (int seed = 0; seed < randomTrees; seed++) {
+      workloads.add(new Workload("RANDOM_" + seed, BenchmarkTrees.buildRandom(2000, seed)));
+    }
+
+    System.out.println(String.format(
+        "%-12s %8s %14s %14s %8s  %s",
+        "Tree",
+        "Nodes",
+        "Java ns/pass",
+        "C ns/pass",
+        "Java/C",
+        "Layout"));
+
+    int mismatches = 0;
+    for (Workload workload : workloads) {
+      File treeFile = File.createTempFile("layout-tree", ".bin");
+      File layoutFile = File.createTempFile("layout-result", ".bin");
+      try {
+        writeTree(workload.mRoot, treeFile);
+        long nativeNanos = runNative(binary, treeFile, layoutFile, warmupPasses, measuredPasses);
+        long javaNanos = runJava(workload.mRoot, warmupPasses, measuredPasses);
+
+        String mismatch = compareLayouts(workload.mRoot, layoutFile);
+        if (mismatch != null) {
+          mismatches++;
+        }
+        System.out.println(String.format(
+            "%-12s %8d %14d %14d %8.2f  %s",
+            workload.mName,
+            BenchmarkTrees.countNodes(workload.mRoot),
+            javaNanos,
+            nativeNanos,
+            (double) javaNanos / Math.max(nativeNanos, 1),
+            mismatch == null ? "same" : mismatch));
+      } finally {
+        treeFile.delete();
+        layoutFile.delete();
+      }
+    }
+
+    if (mismatches > 0) {
+      System.err.println(mismatches + " tree(s) were laid out differently by the C engine");
+      System.exit(1);
+    }
+  }
+
+  private static long runJava(CSSNode root, int warmupPasses, int measuredPasses) {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    long elapsedNanos = 0;
+    for (int pass = 0; pass < warmupPasses + measuredPasses; pass++) {
+      resetTree(root);
+      long start = System.nanoTime();
+      root.calculateLayout(layoutContext);
+      if (pass >= warmupPasses) {
+        elapsedNanos += System.nanoTime() - start;
+      }
+    }
+    return elapsedNanos / Math.max(measuredPasses, 1);
+  }
+
+  /**
+   * Dirties the whole tree and clears its layout so that the next pass lays it out from scratch,
+   * like the C engine does.
+   */
+  private static void resetTree(CSSNode node) {
+    if (node.hasNewLayout()) {
+      node.markLayoutSeen();
+    }
+    node.layout.resetResult();
+    for (int i = 0; i < node.getChildCount(); i++) {
+      resetTree(node.getChildAt(i));
+    }
+    if (node.getChildCount() == 0) {
+      node.dirty();
+    }
+  }
+
+  private static long runNative(
+      String binary,
+      File treeFile,
+      File layoutFile,
+      int warmupPasses,
+      int measuredPasses) throws IOException, InterruptedException {
+    Process process = new ProcessBuilder(
+        binary,
+        treeFile.getPath(),
+        String.valueOf(warmupPasses),
+        String.valueOf(measuredPasses),
+        layoutFile.getPath())
+        .redirectError(ProcessBuilder.Redirect.INHERIT)
+        .start();
+    String output;
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(process.getInputStream(), "UTF-8"))) {
+      output = reader.readLine();
+    }
+    int exitCode = process.waitFor();
+    if (exitCode != 0 || output == null) {
+      throw new IOException(binary + " failed with exit code " + exitCode);
+    }
+    return Long.parseLong(output.trim());
+  }
+
+  private static void writeTree(CSSNode root, File file) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+      out.writeInt(BenchmarkTrees.countNodes(root));
+      writeNode(out, root);
+    }
+  }
+
+  /**
+   * Writes the style of the node the way the C engine stores it: the direction aware start and
+   * end spacings are separate from left and right, and the aliases such as {@link Spacing#ALL}
+   * are already resolved.
+   */
+  private static void writeNode(DataOutputStream out, CSSNode node) throws IOException {
+    CSSStyle style = node.style;
+    out.writeByte(style.direction.ordinal());
+    out.writeByte(style.flexDirection.ordinal());
+    out.writeByte(style.justifyContent.ordinal());
+    out.writeByte(style.alignContent.ordinal());
+    out.writeByte(style.alignItems.ordinal());
+    out.writeByte(style.alignSelf.ordinal());
+    out.writeByte(style.positionType.ordinal());
+    out.writeByte(style.flexWrap.ordinal());
+    out.writeFloat(style.flex);
+    writeSpacing(out, style.margin);
+    writeSpacing(out, style.padding);
+    writeSpacing(out, style.border);
+    for (int i = 0; i < 4; i++) {
+      out.writeFloat(style.position[i]);
+    }
+    out.writeFloat(style.dimensions[CSSLayout.DIMENSION_WIDTH]);
+    out.writeFloat(style.dimensions[CSSLayout.DIMENSION_HEIGHT]);
+    out.writeFloat(style.minWidth);
+    out.writeFloat(style.minHeight);
+    out.writeFloat(style.maxWidth);
+    out.writeFloat(style.maxHeight);
+
+    CSSNode.MeasureFunction measureFunction = node.getMeasureFunction();
+    if (measureFunction == null) {
+      out.writeByte(0);
+    } else if (measureFunction instanceof RandomTreeGenerator.TextMeasureFunction) {
+      RandomTreeGenerator.TextMeasureFunction textMeasureFunction =
+          (RandomTreeGenerator.TextMeasureFunction) measureFunction;
+      out.writeByte(1);
+      out.writeFloat(textMeasureFunction.getTextWidth());
+      out.writeFloat(textMeasureFunction.getLineHeight());
+    } else {
+      throw new IllegalArgumentException(
+          "The C engine can't replicate " + measureFunction.getClass().getName());
+    }
+
+    out.writeInt(node.getChildCount());
+    for (int i = 0; i < node.getChildCount(); i++) {
+      writeNode(out, node.getChildAt(i));
+    }
+  }
+
+  private static void writeSpacing(DataOutputStream out, Spacing spacing) throws IOException {
+    out.writeFloat(spacing.get(Spacing.LEFT));
+    out.writeFloat(spacing.get(Spacing.TOP));
+    out.writeFloat(spacing.get(Spacing.RIGHT));
+    out.writeFloat(spacing.get(Spacing.BOTTOM));
+    out.writeFloat(spacing.getRaw(Spacing.START));
+    out.writeFloat(spacing.getRaw(Spacing.END));
+  }
+
+  /**
+   * @return a description of the first node laid out differently by the C engine, or null if
+   *         all nodes have the same layout
+   */
+  private static String compareLayouts(CSSNode root, File layoutFile) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(layoutFile)))) {
+      return compareLayouts(root, in, "root");
+    }
+  }
+
+  private static String compareLayouts(CSSNode node, DataInputStream in, String path)
+      throws IOException {
+    float top = in.readFloat();
+    float left = in.readFloat();
+    float width = in.readFloat();
+    float height = in.readFloat();
+    CSSLayout layout = node.layout;
+    if (!layoutValuesEqual(layout.position[CSSLayout.POSITION_TOP], top) ||
+        !layoutValuesEqual(layout.position[CSSLayout.POSITION_LEFT], left) ||
+        !layoutValuesEqual(layout.dimensions[CSSLayout.DIMENSION_WIDTH], width) ||
+        !layoutValuesEqual(layout.dimensions[CSSLayout.DIMENSION_HEIGHT], height)) {
+      return "differs at " + path + ": Java " + layout + ", C {" +
+          "left: " + left + ", " +
+          "top: " + top + ", " +
+          "width: " + width + ", " +
+          "height: " + height + "}";
+    }
+
+    String mismatch = null;
+    for (int i = 0; i < node.getChildCount(); i++) {
+      String childMismatch = compareLayouts(node.getChildAt(i), in, path + "." + i);
+      if (mismatch == null) {
+        mismatch = childMismatch;
+      }
+    }
+    return mismatch;
+  }
+
+  private static boolean layoutValuesEqual(float javaValue, float nativeValue) {
+    if (Float.isNaN(javaValue) || Float.isNaN(nativeValue)) {
+      return Float.isNaN(javaValue) && Float.isNaN(nativeValue);
+    }
+    return javaValue == nativeValue || Math.abs(javaValue - nativeValue) <= TOLERANCE;
+  }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link JfrLayoutTracer}.
+ */
+public class JfrLayoutTracerTest {
+
+  private static class TextMeasureFunction implements CSSNode.MeasureFunction {
+    @Override
+    public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+      measureOutput.width = 30;
+      measureOutput.height = 15;
+    }
+  }
+
+  private static List<RecordedEvent> recordLayout(CSSNode root, boolean enabled)
+      throws IOException {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setLayoutTracer(new JfrLayoutTracer());
+    return recordLayout(layoutContext, root, enabled);
+  }
+
+  private static List<RecordedEvent> recordLayout(
+      CSSLayoutContext layoutContext,
+      CSSNode root,
+      boolean enabled) throws IOException {
+    File file = File.createTempFile("css-layout", ".jfr");
+    try {
+      Recording recording = new Recording();
+      if (enabled) {
+        recording.enable(LayoutPassEvent.class);
+        recording.enable(MeasureEvent.class);
+      }
+      recording.start();
+      root.calculateLayout(layoutContext);
+      recording.stop();
+      recording.dump(file.toPath());
+      recording.close();
+      return RecordingFile.readAllEvents(file.toPath());
+    } finally {
+      file.delete();
+    }
+  }
+
+  private static CSSNode buildTree() {
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(100);
+    CSSNode text = new CSSNode();
+    text.setMeasureFunction(new TextMeasureFunction());
+    root.addChildAt(text, 0);
+    root.addChildAt(new CSSNode(), 1);
+    return root;
+  }
+
+  private static int countEvents(List<RecordedEvent> events, String name) {
+    int count = 0;
+    for (RecordedEvent event : events) {
+      if (event.getEventType().getName().equals(name)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Test
+  public void testEmitsEventsWhenEnabled() throws IOException {
+    List<RecordedEvent> events = recordLayout(buildTree(), true);
+
+    assertEquals(1, countEvents(events, "com.facebook.csslayout.LayoutPass"));
+    assertEquals(1, countEvents(events, "com.facebook.csslayout.Measure"));
+    for (RecordedEvent event : events) {
+      String name = event.getEventType().getName();
+      if (name.equals("com.facebook.csslayout.LayoutPass")) {
+        assertEquals(3, event.getInt("nodeCount"));
+        assertEquals(0, event.getInt("cacheHits"));
+        assertEquals(1, event.getInt("measureCalls"));
+      } else if (name.equals("com.facebook.csslayout.Measure")) {
+        assertEquals(100, event.getFloat("width"), 0);
+        assertEquals(15, event.getFloat("measuredHeight"), 0);
+        assertTrue(event.getClass("measureFunction").getName().endsWith("TextMeasureFunction"));
+      }
+    }
+  }
+
+  @Test
+  public void testEmitsOneEventForPassLayingOutSubtreeInPlace() throws IOException {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setLayoutTracer(new JfrLayoutTracer());
+    CSSNode root = new CSSNode();
+    CSSNode card = new CSSNode();
+    card.setStyleWidth(50);
+    card.setStyleHeight(50);
+    CSSNode content = new CSSNode();
+    card.addChildAt(content, 0);
+    root.addChildAt(card, 0);
+    root.calculateLayout(layoutContext);
+    root.markLayoutSeen();
+    card.markLayoutSeen();
+    content.markLayoutSeen();
+
+    content.setStyleHeight(20);
+    List<RecordedEvent> events = recordLayout(layoutContext, root, true);
+
+    assertEquals(1, countEvents(events, "com.facebook.csslayout.LayoutPass"));
+    for (RecordedEvent event : events) {
+      if (event.getEventType().getName().equals("com.facebook.csslayout.LayoutPass")) {
+        assertEquals(3, event.getInt("nodeCount"));
+        assertEquals(1, event.getInt("cacheHits"));
+      }
+    }
+  }
+
+  @Test
+  public void testEventsDisabledByDefault() throws IOException {
+    List<RecordedEvent> events = recordLayout(buildTree(), false);
+
+    assertEquals(0, countEvents(events, "com.facebook.csslayout.LayoutPass"));
+    assertEquals(0, countEvents(events, "com.facebook.csslayout.Measure"));
+  }
+}
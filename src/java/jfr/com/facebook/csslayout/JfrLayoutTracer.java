@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link LayoutTracer} emitting a {@link LayoutPassEvent} for each layout pass and a
+ * {@link MeasureEvent} for each measure function call to Java Flight Recorder. Both events are
+ * disabled by default and are only committed when enabled in the running recording.
+ *
+ * This requires a JDK with the {@code jdk.jfr} module, which is why it lives outside of the main
+ * sources. Like {@link CSSLayoutContext}, an instance must not be shared between threads.
+ */
+public class JfrLayoutTracer implements LayoutTracer {
+
+  // Only used to check whether the events are enabled, so that none is allocated when they aren't
+  private final LayoutPassEvent mPassEventProbe = new LayoutPassEvent();
+  private final MeasureEvent mMeasureEventProbe = new MeasureEvent();
+
+  private @Nullable LayoutPassEvent mPassEvent;
+  private @Nullable MeasureEvent mMeasureEvent;
+  private int mNodeCount;
+  private int mCacheHits;
+  private int mMeasureCalls;
+
+  @Override
+  public void onLayoutPassStart(CSSNode root) {
+    mNodeCount = 0;
+    mCacheHits = 0;
+    mMeasureCalls = 0;
+    if (mPassEventProbe.isEnabled()) {
+      LayoutPassEvent passEvent = new LayoutPassEvent();
+      passEvent.begin();
+      mPassEvent = passEvent;
+    }
+  }
+
+  @Override
+  public void onLayoutPassEnd(CSSNode root, long elapsedNanos) {
+    if (mPassEvent == null) {
+      return;
+    }
+
+    LayoutPassEvent passEvent = mPassEvent;
+    mPassEvent = null;
+    passEvent.end();
+    if (passEvent.shouldCommit()) {
+      passEvent.nodeCount = mNodeCount;
+      passEvent.cacheHits = mCacheHits;
+      passEvent.measureCalls = mMeasureCalls;
+      passEvent.commit();
+    }
+  }
+
+  @Override
+  public void onLayoutNodeEnter(CSSNode node, float parentMaxWidth) {
+  }
+
+  @Override
+  public void onLayoutNodeExit(
+      CSSNode node,
+      float parentMaxWidth,
+      boolean usedCachedLayout,
+      long elapsedNanos) {
+    mNodeCount++;
+    if (usedCachedLayout) {
+      mCacheHits++;
+    }
+  }
+
+  @Override
+  public void onMeasureEnter(CSSNode node, float width) {
+    if (mMeasureEventProbe.isEnabled()) {
+      MeasureEvent measureEvent = new MeasureEvent();
+      measureEvent.begin();
+      mMeasureEvent = measureEvent;
+    }
+  }
+
+  @Override
+  public void onMeasureExit(
+      CSSNode node,
+      float width,
+      MeasureOutput measureOutput,
+      boolean usedCachedMeasure,
+      long elapsedNanos) {
+    if (!usedCachedMeasure) {
+      mMeasureCalls++;
+    }
+    if (mMeasureEvent == null) {
+      return;
+    }
+
+    MeasureEvent measureEvent = mMeasureEvent;
+    mMeasureEvent = null;
+    measureEvent.end();
+    if (!usedCachedMeasure && measureEvent.shouldCommit()) {
+      CSSNode.MeasureFunction measureFunction = node.getMeasureFunction();
+      measureEvent.measureFunction = measureFunction == null ? null : measureFunction.getClass();
+      measureEvent.width = width;
+      measureEvent.measuredWidth = measureOutput.width;
+      measureEvent.measuredHeight = measureOutput.height;
+      measureEvent.commit();
+    }
+  }
+}
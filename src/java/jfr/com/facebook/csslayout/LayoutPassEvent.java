@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event covering a whole {@link CSSNode#calculateLayout} pass. Emitted by
+ * {@link JfrLayoutTracer}, disabled unless turned on in the recording settings.
+ */
+@Name("com.facebook.csslayout.LayoutPass")
+@Label("Layout Pass")
+@Description("A call to CSSNode.calculateLayout")
+@Category("CSS Layout")
+@Enabled(false)
+@StackTrace(false)
+public class LayoutPassEvent extends jdk.jfr.Event {
+
+  @Label("Nodes Visited")
+  @Description("Number of nodes visited by the pass, including the ones reusing their cached layout")
+  public int nodeCount;
+
+  @Label("Cache Hits")
+  @Description("Number of nodes whose cached layout was reused")
+  public int cacheHits;
+
+  @Label("Measure Calls")
+  @Description("Number of measure function invocations")
+  public int measureCalls;
+}
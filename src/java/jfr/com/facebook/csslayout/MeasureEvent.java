@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event covering a single {@link CSSNode.MeasureFunction} invocation. Emitted
+ * by {@link JfrLayoutTracer}, disabled unless turned on in the recording settings.
+ */
+@Name("com.facebook.csslayout.Measure")
+@Label("Measure")
+@Description("A call to a CSSNode.MeasureFunction during layout")
+@Category("CSS Layout")
+@Enabled(false)
+@StackTrace(false)
+public class MeasureEvent extends jdk.jfr.Event {
+
+  @Label("Measure Function")
+  public Class<?> measureFunction;
+
+  @Label("Width")
+  @Description("Width passed to the measure function, NaN when undefined")
+  public float width;
+
+  @Label("Measured Width")
+  public float measuredWidth;
+
+  @Label("Measured Height")
+  public float measuredHeight;
+}
@@ -45,6 +45,23 @@ public class CSSLayout {
     direction = layout.direction;
   }
 
+  /**
+   * @return whether the given layout has the same left and top position, dimensions and
+   *         direction, i.e. the values nodes expose through {@link CSSNode#getLayoutX()} and such
+   */
+  /*package*/ boolean isSame(CSSLayout layout) {
+    return valuesEqual(position[POSITION_LEFT], layout.position[POSITION_LEFT]) &&
+        valuesEqual(position[POSITION_TOP], layout.position[POSITION_TOP]) &&
+        valuesEqual(dimensions[DIMENSION_WIDTH], layout.dimensions[DIMENSION_WIDTH]) &&
+        valuesEqual(dimensions[DIMENSION_HEIGHT], layout.dimensions[DIMENSION_HEIGHT]) &&
+        direction == layout.direction;
+  }
+
+  private static boolean valuesEqual(float f1, float f2) {
+    // Infinite values are equal to themselves too
+    return f1 == f2 || FloatUtil.floatsEqual(f1, f2);
+  }
+
   @Override
   public String toString() {
     return "layout: {" +
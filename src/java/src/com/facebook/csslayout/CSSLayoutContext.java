@@ -8,6 +8,10 @@
  */
 package com.facebook.csslayout;
 
+import javax.annotation.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * A context for holding values local to a given instance of layout computation.
  *
@@ -16,5 +20,102 @@ package com.facebook.csslayout;
  * different node hierarchies.
  */
 public class CSSLayoutContext {
+  /*package*/ static final long NO_TOP_LEVEL_LAYOUT = -1;
+
+  private static final AtomicLong sLastTopLevelLayout = new AtomicLong();
+
   /*package*/ final MeasureOutput measureOutput = new MeasureOutput();
+  /*package*/ @Nullable LayoutStats stats;
+  /*package*/ @Nullable LayoutTracer tracer;
+  /*package*/ @Nullable SubtreeMemo subtreeMemo;
+  /*package*/ @Nullable SharedMeasureCache sharedMeasureCache;
+  /*package*/ @Nullable ChangedNodes changedNodes;
+  /*package*/ long topLevelLayout;
+
+  /**
+   * Starts a layout of a tree or subtree that isn't part of the layout of its parent, i.e. one
+   * {@link LayoutEngine#layoutNode} call from outside of the engine. Its id is unique across
+   * contexts, as they can lay out the same tree one after the other.
+   */
+  /*package*/ void startTopLevelLayout() {
+    topLevelLayout = sLastTopLevelLayout.incrementAndGet();
+  }
+
+  /**
+   * Enables or disables collecting {@link LayoutStats} during the layout passes using this
+   * context. Disabled by default.
+   */
+  public void setStatsEnabled(boolean enabled) {
+    if (!enabled) {
+      stats = null;
+    } else if (stats == null) {
+      stats = new LayoutStats();
+    }
+  }
+
+  /**
+   * @return the counters of the last layout pass, or null if they are not enabled.
+   */
+  public @Nullable LayoutStats getStats() {
+    return stats;
+  }
+
+  /**
+   * Sets the tracer to notify around the layout of each node, or null to stop tracing.
+   */
+  public void setLayoutTracer(@Nullable LayoutTracer layoutTracer) {
+    tracer = layoutTracer;
+  }
+
+  public @Nullable LayoutTracer getLayoutTracer() {
+    return tracer;
+  }
+
+  /**
+   * Sets the memo sharing the layouts of identical subtrees laid out with this context, or null
+   * to not share them, the default.
+   */
+  public void setSubtreeMemo(@Nullable SubtreeMemo subtreeMemo) {
+    this.subtreeMemo = subtreeMemo;
+  }
+
+  public @Nullable SubtreeMemo getSubtreeMemo() {
+    return subtreeMemo;
+  }
+
+  /**
+   * Sets the cache of measures shared with other contexts, possibly used on other threads, or
+   * null to not share them, the default.
+   */
+  public void setSharedMeasureCache(@Nullable SharedMeasureCache sharedMeasureCache) {
+    this.sharedMeasureCache = sharedMeasureCache;
+  }
+
+  public @Nullable SharedMeasureCache getSharedMeasureCache() {
+    return sharedMeasureCache;
+  }
+
+  /**
+   * Enables or disables collecting the {@link ChangedNodes} of the layout passes using this
+   * context. Disabled by default, in which case every node a pass visits has a new layout.
+   */
+  public void setChangedNodesEnabled(boolean enabled) {
+    if (!enabled) {
+      if (changedNodes != null) {
+        // Lets go of the nodes visited since the last pass, e.g. by a hydration
+        changedNodes.onLayoutPassFinished();
+      }
+      changedNodes = null;
+    } else if (changedNodes == null) {
+      changedNodes = new ChangedNodes();
+    }
+  }
+
+  /**
+   * @return the nodes whose layout changed in the last layout pass, or null if they are not
+   *         collected
+   */
+  public @Nullable ChangedNodes getChangedNodes() {
+    return changedNodes;
+  }
 }
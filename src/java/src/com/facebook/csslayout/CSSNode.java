@@ -56,10 +56,41 @@ public class CSSNode {
     public void measure(CSSNode node, float width, MeasureOutput measureOutput);
   }
 
+  /**
+   * A {@link MeasureFunction} declaring that when it measures a node at a width W and gets a
+   * width w no larger than W, it would get the same result for any width between w and W, e.g.
+   * text that fits on the same lines. W is unbounded when the width is undefined. The engine then
+   * reuses such results for any width within that range instead of measuring the node again.
+   */
+  public static interface MonotonicMeasureFunction extends MeasureFunction {
+  }
+
+  /**
+   * A {@link MeasureFunction} whose results only depend on the width and on a key describing what
+   * it measures, e.g. a text and its attributes. Nodes with equal keys then share their results
+   * through the {@link SharedMeasureCache} of the layout context, if it has one.
+   */
+  public static interface KeyedMeasureFunction extends MeasureFunction {
+
+    /**
+     * @return the key of what the node measures, which must implement equals and hashCode and not
+     *         change while it's in the cache, or null if its results shouldn't be shared
+     */
+    @Nullable Object getMeasureKey(CSSNode node);
+  }
+
+  private static final int DIRTY_STYLE = 1 << DirtyReason.STYLE.ordinal();
+  private static final int DIRTY_CHILD_PLACEMENT_STYLE =
+      1 << DirtyReason.CHILD_PLACEMENT_STYLE.ordinal();
+  private static final int DIRTY_CHILDREN = 1 << DirtyReason.CHILDREN.ordinal();
+  private static final int DIRTY_MEASURE = 1 << DirtyReason.MEASURE.ordinal();
+  private static final int DIRTY_DESCENDANT = 1 << DirtyReason.DESCENDANT.ordinal();
+
   // VisibleForTesting
   /*package*/ final CSSStyle style = new CSSStyle();
   /*package*/ final CSSLayout layout = new CSSLayout();
-  /*package*/ final CachedCSSLayout lastLayout = new CachedCSSLayout();
+  /*package*/ final LayoutCache layoutCache = new LayoutCache();
+  /*package*/ final ResolvedStyle resolvedStyle = new ResolvedStyle();
 
   public int lineIndex = 0;
 
@@ -69,7 +100,22 @@ public class CSSNode {
   private @Nullable ArrayList<CSSNode> mChildren;
   private @Nullable CSSNode mParent;
   private @Nullable MeasureFunction mMeasureFunction = null;
+  private @Nullable MeasureCache mMeasureCache = null;
+  private boolean mSubtreeFingerprintValid;
+  private long mSubtreeFingerprint;
+  private int mSubtreeSize;
+  private boolean mMeasuredSubtree;
+  private boolean mHasNewPosition;
+  private boolean mIsTopmostDirty;
+  private boolean mHasPendingUpdateInSubtree;
   private LayoutState mLayoutState = LayoutState.DIRTY;
+  private int mDirtyReasons = DIRTY_STYLE;
+  private boolean mIsInBatch;
+  private int mOpenBatchesInSubtree;
+  private int mBatchedDirtyReasons;
+  private boolean mIsVisitedInLayoutPass;
+  private boolean mHadNewLayoutBeforeLayoutPass;
+  private @Nullable CSSLayout mReportedLayout;
 
   public int getChildCount() {
     return mChildren == null ? 0 : mChildren.size();
@@ -91,14 +137,23 @@ public class CSSNode {
 
     mChildren.add(i, child);
     child.mParent = this;
-    dirty();
+    if (child.hasPendingUpdate()) {
+      child.markPendingUpdateInSubtree();
+    }
+    if (child.mOpenBatchesInSubtree > 0) {
+      addOpenBatchesInSubtree(child.mOpenBatchesInSubtree);
+    }
+    markDirty(DIRTY_CHILDREN);
   }
 
   public CSSNode removeChildAt(int i) {
     Assertions.assertNotNull(mChildren);
     CSSNode removed = mChildren.remove(i);
     removed.mParent = null;
-    dirty();
+    if (removed.mOpenBatchesInSubtree > 0) {
+      addOpenBatchesInSubtree(-removed.mOpenBatchesInSubtree);
+    }
+    markDirty(DIRTY_CHILDREN);
     return removed;
   }
 
@@ -117,30 +172,195 @@ public class CSSNode {
   public void setMeasureFunction(MeasureFunction measureFunction) {
     if (mMeasureFunction != measureFunction) {
       mMeasureFunction = measureFunction;
-      dirty();
+      markDirty(DIRTY_MEASURE);
     }
   }
 
+  public @Nullable MeasureFunction getMeasureFunction() {
+    return mMeasureFunction;
+  }
+
   public boolean isMeasureDefined() {
     return mMeasureFunction != null;
   }
 
-  /*package*/ MeasureOutput measure(MeasureOutput measureOutput, float width) {
+  /**
+   * Measures the node at the given width, reusing the result of a previous call with the same
+   * width, or one covering it for a {@link MonotonicMeasureFunction}, if the node didn't change
+   * since. Otherwise looks the result up in the {@link SharedMeasureCache} of the context for a
+   * {@link KeyedMeasureFunction}.
+   */
+  /*package*/ MeasureOutput measure(CSSLayoutContext layoutContext, float width) {
     if (!isMeasureDefined()) {
       throw new RuntimeException("Measure function isn't defined!");
     }
+    MeasureOutput measureOutput = layoutContext.measureOutput;
+    if (mMeasureCache == null) {
+      mMeasureCache = new MeasureCache();
+    } else if (mMeasureCache.get(
+        width,
+        mMeasureFunction instanceof MonotonicMeasureFunction,
+        measureOutput)) {
+      if (layoutContext.stats != null) {
+        layoutContext.stats.measureCacheHits++;
+      }
+      if (layoutContext.subtreeMemo != null) {
+        layoutContext.subtreeMemo.onMeasure(this, width, measureOutput);
+      }
+      traceCachedMeasure(layoutContext, width, measureOutput);
+      return measureOutput;
+    }
+
+    SharedMeasureCache sharedMeasureCache = layoutContext.sharedMeasureCache;
+    Object measureKey = null;
+    if (sharedMeasureCache != null && mMeasureFunction instanceof KeyedMeasureFunction) {
+      measureKey = ((KeyedMeasureFunction) mMeasureFunction).getMeasureKey(this);
+      if (measureKey != null && sharedMeasureCache.get(measureKey, width, measureOutput)) {
+        if (layoutContext.stats != null) {
+          layoutContext.stats.sharedMeasureCacheHits++;
+        }
+        mMeasureCache.put(width, measureOutput);
+        if (layoutContext.subtreeMemo != null) {
+          layoutContext.subtreeMemo.onMeasure(this, width, measureOutput);
+        }
+        traceCachedMeasure(layoutContext, width, measureOutput);
+        return measureOutput;
+      }
+    }
+
+    if (layoutContext.stats != null) {
+      layoutContext.stats.measureCalls++;
+    }
     measureOutput.height = CSSConstants.UNDEFINED;
     measureOutput.width = CSSConstants.UNDEFINED;
-    Assertions.assertNotNull(mMeasureFunction).measure(this, width, measureOutput);
+    LayoutTracer tracer = layoutContext.tracer;
+    if (tracer == null) {
+      Assertions.assertNotNull(mMeasureFunction).measure(this, width, measureOutput);
+    } else {
+      tracer.onMeasureEnter(this, width);
+      long startNanos = System.nanoTime();
+      Assertions.assertNotNull(mMeasureFunction).measure(this, width, measureOutput);
+      tracer.onMeasureExit(this, width, measureOutput, false, System.nanoTime() - startNanos);
+    }
+    mMeasureCache.put(width, measureOutput);
+    if (measureKey != null) {
+      Assertions.assertNotNull(sharedMeasureCache).put(measureKey, width, measureOutput);
+    }
+    if (layoutContext.subtreeMemo != null) {
+      layoutContext.subtreeMemo.onMeasure(this, width, measureOutput);
+    }
     return measureOutput;
   }
 
+  /**
+   * Reports a measure reused from a cache to the tracer of the context, if there is one.
+   */
+  private void traceCachedMeasure(
+      CSSLayoutContext layoutContext,
+      float width,
+      MeasureOutput measureOutput) {
+    LayoutTracer tracer = layoutContext.tracer;
+    if (tracer != null) {
+      tracer.onMeasureEnter(this, width);
+      tracer.onMeasureExit(this, width, measureOutput, true, 0);
+    }
+  }
+
+  /**
+   * @return the results of the last measures of this node, allocating them if needed
+   */
+  /*package*/ MeasureCache getMeasureCache() {
+    if (mMeasureCache == null) {
+      mMeasureCache = new MeasureCache();
+    }
+    return mMeasureCache;
+  }
+
+  /**
+   * Returns a 64 bit hash of the styles of the nodes of the subtree of this node, see
+   * {@link CSSStyle#getFingerprint}, of which of them have a measure function, and of the shape of
+   * the subtree. It is only computed again for the nodes dirtied since it was last asked for.
+   */
+  public long getSubtreeFingerprint() {
+    updateSubtreeFingerprint();
+    return mSubtreeFingerprint;
+  }
+
+  /**
+   * @return the number of nodes of the subtree of this node, including itself
+   */
+  /*package*/ int getSubtreeSize() {
+    updateSubtreeFingerprint();
+    return mSubtreeSize;
+  }
+
+  /**
+   * @return whether this node or one of its descendants has a measure function
+   */
+  /*package*/ boolean hasMeasuredSubtree() {
+    updateSubtreeFingerprint();
+    return mMeasuredSubtree;
+  }
+
+  private void updateSubtreeFingerprint() {
+    if (mSubtreeFingerprintValid) {
+      return;
+    }
+    long fingerprint = Fingerprint.mix(Fingerprint.start(), style.getFingerprint());
+    fingerprint = Fingerprint.mix(fingerprint, isMeasureDefined() ? 1 : 0);
+    fingerprint = Fingerprint.mix(fingerprint, getChildCount());
+    int size = 1;
+    boolean measuredSubtree = isMeasureDefined();
+    for (int i = 0, childCount = getChildCount(); i < childCount; i++) {
+      CSSNode child = getChildAt(i);
+      fingerprint = Fingerprint.mix(fingerprint, child.getSubtreeFingerprint());
+      size += child.mSubtreeSize;
+      measuredSubtree |= child.mMeasuredSubtree;
+    }
+    mSubtreeFingerprint = Fingerprint.finish(fingerprint);
+    mSubtreeSize = size;
+    mMeasuredSubtree = measuredSubtree;
+    mSubtreeFingerprintValid = true;
+  }
+
+  /**
+   * Invalidates the subtree fingerprint of this node and of its ancestors. Only valid ones need
+   * to be visited, since a node's fingerprint is computed from those of its children.
+   */
+  private void invalidateSubtreeFingerprint() {
+    for (CSSNode node = this; node != null && node.mSubtreeFingerprintValid; node = node.mParent) {
+      node.mSubtreeFingerprintValid = false;
+    }
+  }
+
   /**
    * Performs the actual layout and saves the results in {@link #layout}
    */
   public void calculateLayout(CSSLayoutContext layoutContext) {
+    if (mOpenBatchesInSubtree > 0) {
+      throw new IllegalStateException("Batch was never committed! commit() never called");
+    }
+    if (layoutContext.stats != null) {
+      layoutContext.stats.reset();
+    }
+    LayoutTracer tracer = layoutContext.tracer;
+    long startNanos = 0;
+    if (tracer != null) {
+      tracer.onLayoutPassStart(this);
+      startNanos = System.nanoTime();
+    }
+    if (mHasPendingUpdateInSubtree) {
+      applyPendingUpdates(layoutContext, 0);
+    }
     layout.resetResult();
+    layoutContext.startTopLevelLayout();
     LayoutEngine.layoutNode(layoutContext, this, CSSConstants.UNDEFINED, null);
+    if (layoutContext.changedNodes != null) {
+      layoutContext.changedNodes.onLayoutPassFinished();
+    }
+    if (tracer != null) {
+      tracer.onLayoutPassEnd(this, System.nanoTime() - startNanos);
+    }
   }
 
   /**
@@ -157,22 +377,154 @@ public class CSSNode {
     return mLayoutState == LayoutState.HAS_NEW_LAYOUT;
   }
 
+  /**
+   * @return whether the node was marked dirty for the given reason since its last layout
+   */
+  protected boolean isDirtyBecause(DirtyReason reason) {
+    return isDirty() && (mDirtyReasons & (1 << reason.ordinal())) != 0;
+  }
+
+  /**
+   * Marks the node dirty without telling what changed, so that it is measured and laid out again
+   * by its parent.
+   */
   protected void dirty() {
-    if (mLayoutState == LayoutState.DIRTY) {
+    markDirty(DIRTY_STYLE | DIRTY_MEASURE);
+  }
+
+  /**
+   * Starts recording the changes of the node instead of marking it and its ancestors dirty on each
+   * of them, so that {@link #commit} marks them dirty once for all of them. Until then the node
+   * can be changed even if its new layout wasn't seen, and neither the node nor its ancestors can
+   * be laid out.
+   */
+  public void beginBatch() {
+    if (mIsInBatch) {
+      throw new IllegalStateException("Node is already in a batch, it must be committed first.");
+    }
+    mIsInBatch = true;
+    addOpenBatchesInSubtree(1);
+  }
+
+  /**
+   * Marks the node and its ancestors dirty for the changes recorded since {@link #beginBatch}. A
+   * new layout of the node or its ancestors that wasn't seen yet is dropped, as they are laid out
+   * again anyway.
+   */
+  public void commit() {
+    if (!mIsInBatch) {
+      throw new IllegalStateException("Node isn't in a batch! beginBatch() never called");
+    }
+    mIsInBatch = false;
+    addOpenBatchesInSubtree(-1);
+    if (mBatchedDirtyReasons != 0) {
+      int reasons = mBatchedDirtyReasons;
+      mBatchedDirtyReasons = 0;
+      markDirty(reasons, true);
+    }
+  }
+
+  /**
+   * Counts the given change of the number of nodes in a batch in the subtrees of this node and of
+   * its ancestors, which can't be laid out while there are some.
+   */
+  private void addOpenBatchesInSubtree(int change) {
+    for (CSSNode node = this; node != null; node = node.mParent) {
+      node.mOpenBatchesInSubtree += change;
+    }
+  }
+
+  private void markDirty(int reasons) {
+    markDirty(reasons, false);
+  }
+
+  /**
+   * Marks the node and its ancestors dirty. A node that can be laid out on its own for the reasons
+   * it is dirty for, see {@link LayoutEngine#canLayoutInPlace}, is the topmost dirty node of its
+   * tree and its ancestors are left clean: the next {@link #calculateLayout} lays it out in place,
+   * see {@link LayoutEngine#layoutInPlace}. Its measures are only dropped when its style or
+   * measure function changed.
+   *
+   * @param reasons the bits of the {@link DirtyReason}s the node is marked dirty for
+   * @param dropNewLayout whether a new layout that wasn't seen may be dropped, rather than being
+   *        an error
+   */
+  private void markDirty(int reasons, boolean dropNewLayout) {
+    if ((reasons & (DIRTY_STYLE | DIRTY_MEASURE)) != 0 && mMeasureCache != null) {
+      mMeasureCache.clear();
+    }
+    invalidateSubtreeFingerprint();
+    if (mIsInBatch) {
+      mBatchedDirtyReasons |= reasons;
+      return;
+    } else if (mLayoutState == LayoutState.DIRTY) {
+      mDirtyReasons |= reasons;
+      if (mIsTopmostDirty && !LayoutEngine.canLayoutInPlace(this)) {
+        // The parent has to lay the node out again
+        mIsTopmostDirty = false;
+        if (mParent != null) {
+          mParent.markDirty(DIRTY_DESCENDANT, dropNewLayout);
+        }
+      }
       return;
     } else if (mLayoutState == LayoutState.HAS_NEW_LAYOUT) {
-      throw new IllegalStateException("Previous layout was ignored! markLayoutSeen() never called");
+      if (!dropNewLayout) {
+        throw new IllegalStateException(
+            "Previous layout was ignored! markLayoutSeen() never called");
+      }
+      // The next layout of the node is new even if it's the same as the dropped one
+      mReportedLayout = null;
     }
 
     mLayoutState = LayoutState.DIRTY;
+    mDirtyReasons = reasons;
 
-    if (mParent != null) {
-      mParent.dirty();
+    if (mParent == null) {
+      return;
+    } else if (LayoutEngine.canLayoutInPlace(this)) {
+      mIsTopmostDirty = true;
+      markPendingUpdateInSubtree();
+    } else {
+      mParent.markDirty(DIRTY_DESCENDANT, dropNewLayout);
     }
   }
 
-  /*package*/ void markHasNewLayout() {
+  /**
+   * Marks the node as having a new layout, until the end of the layout pass when the context
+   * collects {@link ChangedNodes}, see {@link #onLayoutPassFinished}.
+   */
+  /*package*/ void markHasNewLayout(CSSLayoutContext layoutContext) {
+    if (layoutContext.changedNodes != null && !mIsVisitedInLayoutPass) {
+      mIsVisitedInLayoutPass = true;
+      mHadNewLayoutBeforeLayoutPass = mLayoutState == LayoutState.HAS_NEW_LAYOUT;
+      layoutContext.changedNodes.onVisited(this);
+    }
     mLayoutState = LayoutState.HAS_NEW_LAYOUT;
+    mDirtyReasons = 0;
+  }
+
+  /**
+   * Compares the layout the node was given by the pass that visited it with the one it last had
+   * a new layout with. If they are the same, the node goes back to the state it was in before the
+   * pass, so that only the nodes whose layout changed have to be seen.
+   *
+   * @return whether the layout of the node changed
+   */
+  /*package*/ boolean onLayoutPassFinished() {
+    mIsVisitedInLayoutPass = false;
+    if (mLayoutState != LayoutState.HAS_NEW_LAYOUT) {
+      // Changed again since, it is laid out by the next pass
+      return false;
+    } else if (mReportedLayout == null) {
+      mReportedLayout = new CSSLayout();
+    } else if (mReportedLayout.isSame(layout)) {
+      if (!mHadNewLayoutBeforeLayoutPass) {
+        mLayoutState = LayoutState.UP_TO_DATE;
+      }
+      return false;
+    }
+    mReportedLayout.copy(layout);
+    return true;
   }
 
   /**
@@ -223,117 +575,215 @@ public class CSSNode {
 
   public void setDirection(CSSDirection direction) {
     if (style.direction != direction) {
+      style.onFieldChanged(CSSStyle.FIELD_DIRECTION, style.direction, direction);
       style.direction = direction;
-      dirty();
+      markDirty(DIRTY_STYLE);
     }
   }
 
   public void setFlexDirection(CSSFlexDirection flexDirection) {
     if (style.flexDirection != flexDirection) {
+      style.onFieldChanged(CSSStyle.FIELD_FLEX_DIRECTION, style.flexDirection, flexDirection);
       style.flexDirection = flexDirection;
-      dirty();
+      markDirty(DIRTY_STYLE);
     }
   }
 
   public void setJustifyContent(CSSJustify justifyContent) {
     if (style.justifyContent != justifyContent) {
+      style.onFieldChanged(CSSStyle.FIELD_JUSTIFY_CONTENT, style.justifyContent, justifyContent);
       style.justifyContent = justifyContent;
-      dirty();
+      markDirty(DIRTY_CHILD_PLACEMENT_STYLE);
     }
   }
 
   public void setAlignItems(CSSAlign alignItems) {
     if (style.alignItems != alignItems) {
+      style.onFieldChanged(CSSStyle.FIELD_ALIGN_ITEMS, style.alignItems, alignItems);
       style.alignItems = alignItems;
-      dirty();
+      markDirty(DIRTY_CHILD_PLACEMENT_STYLE);
     }
   }
 
   public void setAlignSelf(CSSAlign alignSelf) {
     if (style.alignSelf != alignSelf) {
+      style.onFieldChanged(CSSStyle.FIELD_ALIGN_SELF, style.alignSelf, alignSelf);
       style.alignSelf = alignSelf;
-      dirty();
+      markDirty(DIRTY_STYLE);
     }
   }
 
   public void setPositionType(CSSPositionType positionType) {
     if (style.positionType != positionType) {
+      style.onFieldChanged(CSSStyle.FIELD_POSITION_TYPE, style.positionType, positionType);
       style.positionType = positionType;
-      dirty();
+      markDirty(DIRTY_STYLE);
     }
   }
 
   public void setWrap(CSSWrap flexWrap) {
     if (style.flexWrap != flexWrap) {
+      style.onFieldChanged(CSSStyle.FIELD_FLEX_WRAP, style.flexWrap, flexWrap);
       style.flexWrap = flexWrap;
-      dirty();
+      markDirty(DIRTY_CHILD_PLACEMENT_STYLE);
     }
   }
 
   public void setFlex(float flex) {
     if (!valuesEqual(style.flex, flex)) {
+      style.onFieldChanged(CSSStyle.FIELD_FLEX, style.flex, flex);
       style.flex = flex;
-      dirty();
+      markDirty(DIRTY_STYLE);
     }
   }
 
   public void setMargin(int spacingType, float margin) {
     if (style.margin.set(spacingType, margin)) {
-      dirty();
+      markDirty(DIRTY_STYLE);
     }
   }
 
   public void setPadding(int spacingType, float padding) {
     if (style.padding.set(spacingType, padding)) {
-      dirty();
+      markDirty(DIRTY_STYLE);
     }
   }
 
   public void setBorder(int spacingType, float border) {
     if (style.border.set(spacingType, border)) {
-      dirty();
+      markDirty(DIRTY_STYLE);
     }
   }
 
   public void setPositionTop(float positionTop) {
     if (!valuesEqual(style.position[POSITION_TOP], positionTop)) {
+      style.onFieldChanged(
+          CSSStyle.FIELD_POSITION + POSITION_TOP,
+          style.position[POSITION_TOP],
+          positionTop);
+      float oldPositionTop = style.position[POSITION_TOP];
       style.position[POSITION_TOP] = positionTop;
-      dirty();
+      onPositionChanged(POSITION_TOP, oldPositionTop);
     }
   }
 
   public void setPositionBottom(float positionBottom) {
     if (!valuesEqual(style.position[POSITION_BOTTOM], positionBottom)) {
+      style.onFieldChanged(
+          CSSStyle.FIELD_POSITION + POSITION_BOTTOM,
+          style.position[POSITION_BOTTOM],
+          positionBottom);
+      float oldPositionBottom = style.position[POSITION_BOTTOM];
       style.position[POSITION_BOTTOM] = positionBottom;
-      dirty();
+      onPositionChanged(POSITION_BOTTOM, oldPositionBottom);
     }
   }
 
   public void setPositionLeft(float positionLeft) {
     if (!valuesEqual(style.position[POSITION_LEFT], positionLeft)) {
+      style.onFieldChanged(
+          CSSStyle.FIELD_POSITION + POSITION_LEFT,
+          style.position[POSITION_LEFT],
+          positionLeft);
+      float oldPositionLeft = style.position[POSITION_LEFT];
       style.position[POSITION_LEFT] = positionLeft;
-      dirty();
+      onPositionChanged(POSITION_LEFT, oldPositionLeft);
     }
   }
 
   public void setPositionRight(float positionRight) {
     if (!valuesEqual(style.position[POSITION_RIGHT], positionRight)) {
+      style.onFieldChanged(
+          CSSStyle.FIELD_POSITION + POSITION_RIGHT,
+          style.position[POSITION_RIGHT],
+          positionRight);
+      float oldPositionRight = style.position[POSITION_RIGHT];
       style.position[POSITION_RIGHT] = positionRight;
-      dirty();
+      onPositionChanged(POSITION_RIGHT, oldPositionRight);
+    }
+  }
+
+  /**
+   * Moves the node by its new relative offset without laying it out again when possible, see
+   * {@link LayoutEngine#updateRelativePosition}. Its {@link #layout} is only updated by the next
+   * {@link #calculateLayout}.
+   */
+  private void onPositionChanged(int position, float oldValue) {
+    if (!LayoutEngine.canUpdateRelativePosition(this, position, oldValue)) {
+      markDirty(DIRTY_STYLE);
+      return;
+    } else if (mLayoutState == LayoutState.HAS_NEW_LAYOUT && !mIsInBatch) {
+      throw new IllegalStateException("Previous layout was ignored! markLayoutSeen() never called");
+    }
+
+    invalidateSubtreeFingerprint();
+    if (LayoutEngine.updateRelativePosition(this, position, oldValue)) {
+      mHasNewPosition = true;
+      markPendingUpdateInSubtree();
+    }
+  }
+
+  /**
+   * @return whether the node has to be updated by the next {@link #calculateLayout} before its
+   *         tree is laid out, i.e. moved or laid out in place
+   */
+  private boolean hasPendingUpdate() {
+    return mHasNewPosition || mIsTopmostDirty || mHasPendingUpdateInSubtree;
+  }
+
+  private void markPendingUpdateInSubtree() {
+    for (CSSNode node = mParent;
+         node != null && !node.mHasPendingUpdateInSubtree;
+         node = node.mParent) {
+      node.mHasPendingUpdateInSubtree = true;
+    }
+  }
+
+  /**
+   * Applies the positions computed by {@link #onPositionChanged} to the layouts of the subtree,
+   * and lays out the topmost dirty nodes of the subtree in place.
+   *
+   * @param depth the depth of this node below the root of the layout pass
+   */
+  private void applyPendingUpdates(CSSLayoutContext layoutContext, int depth) {
+    mHasPendingUpdateInSubtree = false;
+    for (int i = 0, childCount = getChildCount(); i < childCount; i++) {
+      CSSNode child = getChildAt(i);
+      if (child.hasPendingUpdate()) {
+        child.applyPendingUpdates(layoutContext, depth + 1);
+      }
+    }
+    if (mHasNewPosition) {
+      mHasNewPosition = false;
+      if (LayoutEngine.applyNewPosition(layoutContext, this) && layoutContext.stats != null) {
+        layoutContext.stats.relativePositionsUpdated++;
+      }
+    }
+    if (mIsTopmostDirty) {
+      mIsTopmostDirty = false;
+      LayoutEngine.layoutInPlace(layoutContext, this, depth);
     }
   }
 
   public void setStyleWidth(float width) {
     if (!valuesEqual(style.dimensions[DIMENSION_WIDTH], width)) {
+      style.onFieldChanged(
+          CSSStyle.FIELD_DIMENSIONS + DIMENSION_WIDTH,
+          style.dimensions[DIMENSION_WIDTH],
+          width);
       style.dimensions[DIMENSION_WIDTH] = width;
-      dirty();
+      markDirty(DIRTY_STYLE);
     }
   }
 
   public void setStyleHeight(float height) {
     if (!valuesEqual(style.dimensions[DIMENSION_HEIGHT], height)) {
+      style.onFieldChanged(
+          CSSStyle.FIELD_DIMENSIONS + DIMENSION_HEIGHT,
+          style.dimensions[DIMENSION_HEIGHT],
+          height);
       style.dimensions[DIMENSION_HEIGHT] = height;
-      dirty();
+      markDirty(DIRTY_STYLE);
     }
   }
 
@@ -390,7 +840,7 @@ public class CSSNode {
    */
   public void setDefaultPadding(int spacingType, float padding) {
     if (style.padding.setDefault(spacingType, padding)) {
-      dirty();
+      markDirty(DIRTY_STYLE);
     }
   }
 }
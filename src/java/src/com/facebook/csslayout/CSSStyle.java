@@ -13,6 +13,28 @@ package com.facebook.csslayout;
  */
 public class CSSStyle {
 
+  // Fields of the fingerprint
+  /*package*/ static final int FIELD_DIRECTION = 1;
+  /*package*/ static final int FIELD_FLEX_DIRECTION = 2;
+  /*package*/ static final int FIELD_JUSTIFY_CONTENT = 3;
+  /*package*/ static final int FIELD_ALIGN_CONTENT = 4;
+  /*package*/ static final int FIELD_ALIGN_ITEMS = 5;
+  /*package*/ static final int FIELD_ALIGN_SELF = 6;
+  /*package*/ static final int FIELD_POSITION_TYPE = 7;
+  /*package*/ static final int FIELD_FLEX_WRAP = 8;
+  /*package*/ static final int FIELD_FLEX = 9;
+  /*package*/ static final int FIELD_MARGIN = 10;
+  /*package*/ static final int FIELD_PADDING = 11;
+  /*package*/ static final int FIELD_BORDER = 12;
+  // Followed by one field per position
+  /*package*/ static final int FIELD_POSITION = 13;
+  // Followed by one field per dimension
+  /*package*/ static final int FIELD_DIMENSIONS = 17;
+  /*package*/ static final int FIELD_MIN_WIDTH = 19;
+  /*package*/ static final int FIELD_MIN_HEIGHT = 20;
+  /*package*/ static final int FIELD_MAX_WIDTH = 21;
+  /*package*/ static final int FIELD_MAX_HEIGHT = 22;
+
   public CSSDirection direction = CSSDirection.INHERIT;
   public CSSFlexDirection flexDirection = CSSFlexDirection.COLUMN;
   public CSSJustify justifyContent = CSSJustify.FLEX_START;
@@ -44,4 +66,36 @@ public class CSSStyle {
 
   public float maxWidth = CSSConstants.UNDEFINED;
   public float maxHeight = CSSConstants.UNDEFINED;
+
+  // Fingerprint of the fields set through the setters of CSSNode
+  private long mSetFieldsFingerprint;
+
+  /**
+   * Updates the fingerprint for a field about to be set through a setter of {@link CSSNode}.
+   */
+  /*package*/ void onFieldChanged(int field, float oldValue, float newValue) {
+    mSetFieldsFingerprint ^= Fingerprint.change(field, oldValue, newValue);
+  }
+
+  /*package*/ void onFieldChanged(int field, Enum<?> oldValue, Enum<?> newValue) {
+    mSetFieldsFingerprint ^= Fingerprint.change(field, oldValue, newValue);
+  }
+
+  /**
+   * Returns a 64 bit hash of the values of this style, which is the same for two styles with the
+   * same values. It doesn't walk the fields: the fields that {@link CSSNode} has setters for, and
+   * the spacings, keep it up to date as they are set. As with dirtying the node, values assigned
+   * directly to these fields rather than through the setters aren't taken into account.
+   */
+  public long getFingerprint() {
+    return mSetFieldsFingerprint ^
+        Fingerprint.of(FIELD_ALIGN_CONTENT, alignContent) ^
+        Fingerprint.of(FIELD_MARGIN, margin.getFingerprint()) ^
+        Fingerprint.of(FIELD_PADDING, padding.getFingerprint()) ^
+        Fingerprint.of(FIELD_BORDER, border.getFingerprint()) ^
+        Fingerprint.of(FIELD_MIN_WIDTH, minWidth) ^
+        Fingerprint.of(FIELD_MIN_HEIGHT, minHeight) ^
+        Fingerprint.of(FIELD_MAX_WIDTH, maxWidth) ^
+        Fingerprint.of(FIELD_MAX_HEIGHT, maxHeight);
+  }
 }
@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.util.ArrayList;
+
+/**
+ * The nodes whose position, dimensions or direction changed in the last layout pass of a
+ * {@link CSSLayoutContext}, compared to the layout they last had a new layout with. Only collected
+ * when enabled with {@link CSSLayoutContext#setChangedNodesEnabled(boolean)}.
+ *
+ * While enabled, the nodes a pass gives the same layout again are not marked as having a new
+ * layout, so applying a pass only takes going through these nodes and calling
+ * {@link CSSNode#markLayoutSeen()} on each of them, instead of going through the whole tree.
+ */
+public class ChangedNodes {
+
+  private final ArrayList<CSSNode> mVisitedNodes = new ArrayList<>();
+  private final ArrayList<CSSNode> mChangedNodes = new ArrayList<>();
+
+  /**
+   * @return the number of nodes whose layout changed in the last layout pass
+   */
+  public int size() {
+    return mChangedNodes.size();
+  }
+
+  /**
+   * @return the node whose layout changed at the given index, in the order they were laid out
+   */
+  public CSSNode get(int index) {
+    return mChangedNodes.get(index);
+  }
+
+  /*package*/ void onVisited(CSSNode node) {
+    mVisitedNodes.add(node);
+  }
+
+  /**
+   * Keeps the nodes visited since the previous pass whose layout changed, and lets the others go
+   * back to not having a new layout, see {@link CSSNode#onLayoutPassFinished}.
+   */
+  /*package*/ void onLayoutPassFinished() {
+    mChangedNodes.clear();
+    for (int i = 0, visitedCount = mVisitedNodes.size(); i < visitedCount; i++) {
+      CSSNode node = mVisitedNodes.get(i);
+      if (node.onLayoutPassFinished()) {
+        mChangedNodes.add(node);
+      }
+    }
+    mVisitedNodes.clear();
+  }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+/**
+ * Why a {@link CSSNode} was marked dirty since its last layout. A node records every reason that
+ * applied, which decides what has to be laid out or measured again.
+ */
+public enum DirtyReason {
+  /**
+   * A style property its parent lays the node out with changed, e.g. its size, margin or flex,
+   * or the node was changed in an unspecified way with {@link CSSNode#dirty}. Its parent has to
+   * be laid out again.
+   */
+  STYLE,
+
+  /**
+   * A style property only the children of the node are placed with changed, e.g. its
+   * justifyContent or alignItems. The node can be laid out again on its own if its size is fixed
+   * by its own style, see {@link LayoutEngine#canLayoutInPlace}, otherwise its parent has to be
+   * laid out again too.
+   */
+  CHILD_PLACEMENT_STYLE,
+
+  /**
+   * Children were added to or removed from the node.
+   */
+  CHILDREN,
+
+  /**
+   * The measure function of the node changed, so its measures can't be reused. Like
+   * {@link #CHILD_PLACEMENT_STYLE}, it only leaves the parent of the node clean if the size of
+   * the node is fixed by its own style.
+   */
+  MEASURE,
+
+  /**
+   * One of the descendants of the node changed, but not the node itself.
+   */
+  DESCENDANT,
+}
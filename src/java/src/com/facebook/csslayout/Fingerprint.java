@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+/**
+ * 64 bit hashes of styles and subtrees, see {@link CSSStyle#getFingerprint}.
+ *
+ * The fingerprint of a set of fields is the xor of the hashes of each field and its value, so that
+ * changing a field only takes xoring out the hash of its old value and xoring in the hash of the
+ * new one.
+ */
+/*package*/ class Fingerprint {
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /**
+   * @return the hash of the given field having the given value
+   */
+  /*package*/ static long of(int field, int value) {
+    return finish(((long) field << 32) | (value & 0xffffffffL));
+  }
+
+  /*package*/ static long of(int field, float value) {
+    return of(field, Float.floatToIntBits(value));
+  }
+
+  /*package*/ static long of(int field, long value) {
+    return finish(mix(mix(FNV_OFFSET, field), value));
+  }
+
+  /*package*/ static long of(int field, Enum<?> value) {
+    return of(field, value.ordinal());
+  }
+
+  /**
+   * @return the change to apply to a fingerprint when the given field changes value
+   */
+  /*package*/ static long change(int field, float oldValue, float newValue) {
+    return of(field, oldValue) ^ of(field, newValue);
+  }
+
+  /*package*/ static long change(int field, Enum<?> oldValue, Enum<?> newValue) {
+    return of(field, oldValue) ^ of(field, newValue);
+  }
+
+  /**
+   * @return the initial value of a hash of an ordered sequence of values, see {@link #mix}
+   */
+  /*package*/ static long start() {
+    return FNV_OFFSET;
+  }
+
+  /**
+   * Mixes a value into a hash. Unlike xoring fingerprints, the result depends on the order in
+   * which the values are mixed in.
+   */
+  /*package*/ static long mix(long hash, long value) {
+    return (hash ^ value) * FNV_PRIME;
+  }
+
+  /*package*/ static long mix(long hash, float value) {
+    return mix(hash, Float.floatToIntBits(value));
+  }
+
+  /**
+   * Finalizes a hash so that all its bits depend on all the bits of the value.
+   */
+  /*package*/ static long finish(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    return hash ^ (hash >>> 33);
+  }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import javax.annotation.Nullable;
+
+/**
+ * The last layouts computed for a node, keyed on the constraints its parent laid it out with, see
+ * {@link CachedCSSLayout}. A parent that lays a child out more than once per pass with different
+ * constraints, as it does for flexible and stretched children, finds each of them here on the
+ * next pass instead of laying the subtree of the child out again. Holds up to
+ * {@link #MAX_ENTRIES} entries and evicts the least recently used one.
+ *
+ * The layouts of the descendants of the node are those of the entry computed or reused last, the
+ * current one. Every entry thus also keeps the layouts the node gave to its children and the
+ * entries of the children they came from, so that reusing another entry copies them back down the
+ * subtree. That still visits the subtree, but doesn't lay it out or measure anything. If one of
+ * these entries was evicted in the meantime, the node has to be laid out again.
+ */
+/*package*/ class LayoutCache {
+
+  /*package*/ static final int MAX_ENTRIES = 4;
+
+  /*package*/ static class Entry extends CachedCSSLayout {
+
+    private long mGeneration;
+    private long mTopLevelLayout;
+    private long mLastUsed;
+    private int mChildCount;
+    private CSSLayout[] mChildLayouts = new CSSLayout[0];
+    private int[] mChildEntries = new int[0];
+    private long[] mChildGenerations = new long[0];
+
+    private void ensureChildCapacity(int childCount) {
+      if (mChildLayouts.length >= childCount) {
+        return;
+      }
+      CSSLayout[] childLayouts = new CSSLayout[childCount];
+      System.arraycopy(mChildLayouts, 0, childLayouts, 0, mChildLayouts.length);
+      for (int i = mChildLayouts.length; i < childCount; i++) {
+        childLayouts[i] = new CSSLayout();
+      }
+      mChildLayouts = childLayouts;
+      mChildEntries = new int[childCount];
+      mChildGenerations = new long[childCount];
+    }
+  }
+
+  private final Entry[] mEntries = new Entry[MAX_ENTRIES];
+  private int mSize;
+  private int mCurrent = -1;
+  private long mClock;
+
+  /**
+   * @return the number of layouts in the cache
+   */
+  /*package*/ int size() {
+    return mSize;
+  }
+
+  /**
+   * @return the entry whose layouts are those of the subtree of the node, or null if there is none
+   */
+  /*package*/ @Nullable Entry getCurrent() {
+    return mCurrent < 0 ? null : mEntries[mCurrent];
+  }
+
+  /**
+   * Forgets all the layouts, which no longer apply once the node or its subtree has changed.
+   */
+  /*package*/ void clear() {
+    mSize = 0;
+    mCurrent = -1;
+  }
+
+  /**
+   * @return the index of the entry computed with the given constraints, or -1 if there is none
+   */
+  /*package*/ int find(float requestedWidth, float requestedHeight, float parentMaxWidth) {
+    for (int i = 0; i < mSize; i++) {
+      Entry entry = mEntries[i];
+      if (FloatUtil.floatsEqual(entry.requestedWidth, requestedWidth) &&
+          FloatUtil.floatsEqual(entry.requestedHeight, requestedHeight) &&
+          FloatUtil.floatsEqual(entry.parentMaxWidth, parentMaxWidth)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /*package*/ Entry get(int index) {
+    return mEntries[index];
+  }
+
+  /**
+   * @return the layout the given entry gave to the child at the given index, or null if it had no
+   *         such child
+   */
+  /*package*/ @Nullable CSSLayout getChildLayout(int index, int childIndex) {
+    Entry entry = mEntries[index];
+    return childIndex < entry.mChildCount ? entry.mChildLayouts[childIndex] : null;
+  }
+
+  /*package*/ boolean isCurrent(int index) {
+    return index == mCurrent;
+  }
+
+  /**
+   * @return whether the given entry was computed during the given top level layout, see
+   *         {@link CSSLayoutContext#startTopLevelLayout}. Its position then includes where the
+   *         parent placed the node in that same layout, otherwise it may have been placed
+   *         elsewhere since.
+   */
+  /*package*/ boolean isFromTopLevelLayout(int index, long topLevelLayout) {
+    return mEntries[index].mTopLevelLayout == topLevelLayout;
+  }
+
+  /**
+   * @return whether the layouts of the given entry can be restored for the subtree of the node,
+   *         i.e. none of the entries of its descendants it was computed with have been evicted
+   */
+  /*package*/ boolean canRestore(CSSNode node, int index) {
+    return canRestore(node, index, mEntries[index].mGeneration);
+  }
+
+  private boolean canRestore(CSSNode node, int index, long generation) {
+    if (index < 0 || index >= mSize || mEntries[index].mGeneration != generation) {
+      return false;
+    }
+    if (index == mCurrent) {
+      return true;
+    }
+    Entry entry = mEntries[index];
+    if (entry.mChildCount != node.getChildCount()) {
+      return false;
+    }
+    for (int i = 0; i < entry.mChildCount; i++) {
+      CSSNode child = node.getChildAt(i);
+      if (!child.layoutCache.canRestore(
+          child,
+          entry.mChildEntries[i],
+          entry.mChildGenerations[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Makes the given entry the current one, copying its layouts back down the subtree of the node
+   * if it isn't already. {@link #canRestore} must have been checked first.
+   */
+  /*package*/ void restore(CSSLayoutContext layoutContext, CSSNode node, int index) {
+    Entry entry = mEntries[index];
+    entry.mLastUsed = ++mClock;
+    if (index == mCurrent) {
+      return;
+    }
+    for (int i = 0; i < entry.mChildCount; i++) {
+      CSSNode child = node.getChildAt(i);
+      child.layoutCache.restore(layoutContext, child, entry.mChildEntries[i]);
+      child.layout.copy(entry.mChildLayouts[i]);
+      child.markHasNewLayout(layoutContext);
+    }
+    mCurrent = index;
+  }
+
+  /**
+   * Replaces the position of the given entry with the one of the given layout, which the node was
+   * placed at again during the given top level layout.
+   */
+  /*package*/ void updatePosition(int index, CSSLayout layout, long topLevelLayout) {
+    Entry entry = mEntries[index];
+    System.arraycopy(layout.position, 0, entry.position, 0, 4);
+    entry.mTopLevelLayout = topLevelLayout;
+  }
+
+  /**
+   * Picks the entry the node is about to be laid out into with the given constraints, evicting
+   * the least recently used one if the cache is full.
+   *
+   * @return the index of the entry, to pass to {@link #finish} once the node is laid out
+   */
+  /*package*/ int start(float requestedWidth, float requestedHeight, float parentMaxWidth) {
+    int index = find(requestedWidth, requestedHeight, parentMaxWidth);
+    if (index < 0) {
+      if (mSize < MAX_ENTRIES) {
+        index = mSize++;
+        if (mEntries[index] == null) {
+          mEntries[index] = new Entry();
+        }
+      } else {
+        index = 0;
+        for (int i = 1; i < mSize; i++) {
+          if (mEntries[i].mLastUsed < mEntries[index].mLastUsed) {
+            index = i;
+          }
+        }
+      }
+    }
+
+    Entry entry = mEntries[index];
+    entry.requestedWidth = requestedWidth;
+    entry.requestedHeight = requestedHeight;
+    entry.parentMaxWidth = parentMaxWidth;
+    entry.mGeneration = ++mClock;
+    entry.mLastUsed = mClock;
+    // The subtree no longer matches any entry until the node is laid out
+    mCurrent = -1;
+    return index;
+  }
+
+  /**
+   * Stores the layout of the node and of its children into the entry returned by {@link #start}
+   * and makes it the current one.
+   *
+   * @param topLevelLayout the top level layout the node was laid out in, see
+   *        {@link #isFromTopLevelLayout}
+   */
+  /*package*/ void finish(CSSNode node, int index, long topLevelLayout) {
+    Entry entry = mEntries[index];
+    entry.copy(node.layout);
+    entry.mTopLevelLayout = topLevelLayout;
+    int childCount = node.getChildCount();
+    entry.ensureChildCapacity(childCount);
+    entry.mChildCount = childCount;
+    for (int i = 0; i < childCount; i++) {
+      CSSNode child = node.getChildAt(i);
+      LayoutCache childCache = child.layoutCache;
+      entry.mChildLayouts[i].copy(child.layout);
+      entry.mChildEntries[i] = childCache.mCurrent;
+      entry.mChildGenerations[i] =
+          childCache.mCurrent < 0 ? 0 : childCache.mEntries[childCache.mCurrent].mGeneration;
+    }
+    mCurrent = index;
+  }
+}
@@ -8,6 +8,8 @@
  */
 package com.facebook.csslayout;
 
+import javax.annotation.Nullable;
+
 import static com.facebook.csslayout.CSSLayout.DIMENSION_HEIGHT;
 import static com.facebook.csslayout.CSSLayout.DIMENSION_WIDTH;
 import static com.facebook.csslayout.CSSLayout.POSITION_BOTTOM;
@@ -60,20 +62,6 @@ public class LayoutEngine {
       DIMENSION_WIDTH,
   };
 
-  private static final int[] leadingSpacing = {
-      Spacing.TOP,
-      Spacing.BOTTOM,
-      Spacing.START,
-      Spacing.START
-  };
-
-  private static final int[] trailingSpacing = {
-      Spacing.BOTTOM,
-      Spacing.TOP,
-      Spacing.END,
-      Spacing.END
-  };
-
   private static float boundAxis(CSSNode node, int axis, float value) {
     float min = CSSConstants.UNDEFINED;
     float max = CSSConstants.UNDEFINED;
@@ -114,10 +102,10 @@ public class LayoutEngine {
     // The dimensions can never be smaller than the padding and border
     float maxLayoutDimension = Math.max(
         boundAxis(node, axis, node.style.dimensions[dim[axis]]),
-        node.style.padding.getWithFallback(leadingSpacing[axis], leading[axis]) +
-            node.style.padding.getWithFallback(trailingSpacing[axis], trailing[axis]) +
-            node.style.border.getWithFallback(leadingSpacing[axis], leading[axis]) +
-            node.style.border.getWithFallback(trailingSpacing[axis], trailing[axis]));
+        node.style.padding.resolvedLeading[axis] +
+            node.style.padding.resolvedTrailing[axis] +
+            node.style.border.resolvedLeading[axis] +
+            node.style.border.resolvedTrailing[axis]);
     node.layout.dimensions[dim[axis]] = maxLayoutDimension;
   }
 
@@ -131,6 +119,268 @@ public class LayoutEngine {
     return Float.isNaN(trailingPos) ? 0 : -trailingPos;
   }
 
+  /**
+   * @return the relative position of the node on the given axis if the given offset of its style
+   *         had the given value
+   */
+  private static float getRelativePosition(CSSNode node, int axis, int position, float value) {
+    float lead = leading[axis] == position ? value : node.style.position[leading[axis]];
+    if (!Float.isNaN(lead)) {
+      return lead;
+    }
+
+    float trailingPos = trailing[axis] == position ? value : node.style.position[trailing[axis]];
+    return Float.isNaN(trailingPos) ? 0 : -trailingPos;
+  }
+
+  /**
+   * @return the position the node gives itself on the given edge before its parent places it,
+   *         i.e. its margin and relative position, if the given offset of its style had the given
+   *         value
+   */
+  private static float getOwnPosition(CSSNode node, int edge, int position, float value) {
+    resolveStyleOfLaidOutNode(node);
+    int axis = node.resolvedStyle.mainAxis;
+    if (leading[axis] != edge && trailing[axis] != edge) {
+      axis = node.resolvedStyle.crossAxis;
+    }
+    float margin = leading[axis] == edge
+        ? node.style.margin.resolvedLeading[axis]
+        : node.style.margin.resolvedTrailing[axis];
+    return margin + getRelativePosition(node, axis, position, value);
+  }
+
+  /**
+   * @return the position the node gives itself on the given edge before its parent places it
+   */
+  private static float getOwnPosition(CSSNode node, int edge) {
+    return getOwnPosition(node, edge, -1, CSSConstants.UNDEFINED);
+  }
+
+  /**
+   * Resolves the direction and axes of the node for the direction its parent was laid out with.
+   * Only {@link #layoutNodeImpl} resolves them otherwise, which nodes whose layout was restored,
+   * e.g. by {@link SubtreeMemo} or {@link PersistentLayoutCache}, weren't laid out with.
+   */
+  private static void resolveStyleOfLaidOutNode(CSSNode node) {
+    CSSNode parent = node.getParent();
+    resolveStyle(node, parent == null ? null : parent.layout.direction);
+  }
+
+  /**
+   * @return whether the dimension of the node on the given axis was known before laying out its
+   *         children, when it was laid out into the given cached layout
+   */
+  private static boolean wasDimDefined(CSSNode node, CachedCSSLayout cachedLayout, int axis) {
+    float requestedDim = dim[axis] == DIMENSION_WIDTH
+        ? cachedLayout.requestedWidth
+        : cachedLayout.requestedHeight;
+    return !Float.isNaN(requestedDim) ||
+        (!Float.isNaN(node.style.dimensions[dim[axis]]) && node.style.dimensions[dim[axis]] > 0.0);
+  }
+
+  /**
+   * Whether a change of a relative offset of the node can be applied to its current layouts with
+   * {@link #updateRelativePosition} instead of laying out the node and its ancestors again.
+   * Relative offsets only move the node, except in parents that wrap their children, where
+   * aligning the lines overrides them, and for flexible children, which their parent lays out
+   * after it started placing them.
+   *
+   * @param position the offset of the style that changed, e.g. {@link CSSLayout#POSITION_TOP}
+   * @param oldValue its value when the node was laid out
+   */
+  /*package*/ static boolean canUpdateRelativePosition(
+      CSSNode node,
+      int position,
+      float oldValue) {
+    if (node.style.positionType != CSSPositionType.RELATIVE ||
+        node.isDirty() ||
+        node.layoutCache.getCurrent() == null) {
+      return false;
+    }
+    // Every layout of the node has to start from the position it gave itself
+    LayoutCache layoutCache = node.layoutCache;
+    for (int edge = 0; edge < 4; edge++) {
+      float ownPosition = getOwnPosition(node, edge, position, oldValue);
+      for (int i = 0; i < layoutCache.size(); i++) {
+        if (layoutCache.get(i).position[edge] != ownPosition) {
+          return false;
+        }
+      }
+    }
+
+    CSSNode parent = node.getParent();
+    if (parent == null || parent.isDirty()) {
+      return true;
+    }
+    if (parent.style.flexWrap == CSSWrap.WRAP) {
+      return false;
+    }
+    if (node.style.flex > 0) {
+      resolveStyleOfLaidOutNode(parent);
+      LayoutCache parentLayoutCache = parent.layoutCache;
+      for (int i = 0; i < parentLayoutCache.size(); i++) {
+        if (wasDimDefined(parent, parentLayoutCache.get(i), parent.resolvedStyle.mainAxis)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Moves the node by the change of its relative offset, in the layouts cached by the node and by
+   * its parent, the same way the parent would have placed it if they were laid out again. As the
+   * change is added to positions the parent already rounded, fractional positions can differ from
+   * those of a full layout in their last bits.
+   *
+   * @param position the offset of the style that changed, e.g. {@link CSSLayout#POSITION_TOP}
+   * @param oldValue its value when the node was laid out
+   * @return whether the position of the node has yet to be updated with {@link #applyNewPosition},
+   *         i.e. whether its parent isn't going to be laid out again anyway
+   */
+  /*package*/ static boolean updateRelativePosition(CSSNode node, int position, float oldValue) {
+    float newValue = node.style.position[position];
+    LayoutCache layoutCache = node.layoutCache;
+    for (int edge = 0; edge < 4; edge++) {
+      float ownPosition = getOwnPosition(node, edge, position, newValue);
+      for (int i = 0; i < layoutCache.size(); i++) {
+        layoutCache.get(i).position[edge] = ownPosition;
+      }
+    }
+
+    CSSNode parent = node.getParent();
+    if (parent == null || parent.isDirty()) {
+      return false;
+    }
+    resolveStyleOfLaidOutNode(parent);
+    int childIndex = parent.indexOf(node);
+    LayoutCache parentLayoutCache = parent.layoutCache;
+    for (int i = 0; i < parentLayoutCache.size(); i++) {
+      CachedCSSLayout parentLayout = parentLayoutCache.get(i);
+      CSSLayout childLayout = parentLayoutCache.getChildLayout(i, childIndex);
+      if (childLayout == null) {
+        continue;
+      }
+      for (int ii = 0; ii < 2; ii++) {
+        int axis = ii == 0 ? parent.resolvedStyle.mainAxis : parent.resolvedStyle.crossAxis;
+        // The parent added its offset to the position the node gave itself on the leading edge,
+        // so only the change of the latter applies
+        double change = (double) getOwnPosition(node, pos[axis], position, newValue) -
+            getOwnPosition(node, pos[axis], position, oldValue);
+        childLayout.position[pos[axis]] = (float) (childLayout.position[pos[axis]] + change);
+        if (wasDimDefined(parent, parentLayout, axis) ||
+            axis == CSS_FLEX_DIRECTION_ROW_REVERSE ||
+            axis == CSS_FLEX_DIRECTION_COLUMN_REVERSE) {
+          childLayout.position[trailing[axis]] = parentLayout.dimensions[dim[axis]] -
+              childLayout.dimensions[dim[axis]] - childLayout.position[pos[axis]];
+        } else {
+          childLayout.position[trailing[axis]] =
+              getOwnPosition(node, trailing[axis], position, newValue);
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the layout the parent of the node gave to it when the parent was laid out last, or
+   *         null if there is none
+   */
+  private static @Nullable CSSLayout getPlacedLayout(CSSNode node) {
+    CSSNode parent = node.getParent();
+    if (parent == null) {
+      return null;
+    }
+    LayoutCache parentLayoutCache = parent.layoutCache;
+    for (int i = 0; i < parentLayoutCache.size(); i++) {
+      if (parentLayoutCache.isCurrent(i)) {
+        return parentLayoutCache.getChildLayout(i, parent.indexOf(node));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Copies the position given to the node by {@link #updateRelativePosition} into its layout,
+   * unless the node or its parent is going to be laid out again anyway.
+   *
+   * @return whether the position was updated
+   */
+  /*package*/ static boolean applyNewPosition(CSSLayoutContext layoutContext, CSSNode node) {
+    CSSNode parent = node.getParent();
+    if (node.isDirty() || parent == null || parent.isDirty()) {
+      return false;
+    }
+    CSSLayout placedLayout = getPlacedLayout(node);
+    if (placedLayout == null) {
+      return false;
+    }
+    System.arraycopy(placedLayout.position, 0, node.layout.position, 0, 4);
+    node.markHasNewLayout(layoutContext);
+    return true;
+  }
+
+  /**
+   * Whether the dirty node can be laid out again on its own with {@link #layoutInPlace}, i.e.
+   * whether it isn't dirty because of a style its parent lays it out with, see
+   * {@link DirtyReason}, its parent is clean and placed it when it was laid out last, and its size
+   * can't depend on its subtree. This is the case when its width and height are fixed by its own
+   * style and it isn't flexible, as its parent can then neither flex nor stretch it, and only uses
+   * that size whatever constraints it lays it out with. Neither the placement of its children nor
+   * its measure function can then change its size either.
+   */
+  /*package*/ static boolean canLayoutInPlace(CSSNode node) {
+    CSSNode parent = node.getParent();
+    return parent != null &&
+        !node.isDirtyBecause(DirtyReason.STYLE) &&
+        !parent.isDirty() &&
+        !Float.isNaN(node.style.dimensions[DIMENSION_WIDTH]) &&
+        node.style.dimensions[DIMENSION_WIDTH] > 0.0 &&
+        !Float.isNaN(node.style.dimensions[DIMENSION_HEIGHT]) &&
+        node.style.dimensions[DIMENSION_HEIGHT] > 0.0 &&
+        !(node.style.positionType == CSSPositionType.RELATIVE && node.style.flex > 0) &&
+        node.layoutCache.getCurrent() != null &&
+        getPlacedLayout(node) != null;
+  }
+
+  /**
+   * Lays out the dirty node again with the constraints of its last layout, and puts it back where
+   * its parent placed it, without laying out its parent, unless the node isn't dirty or its
+   * parent is going to be laid out again anyway. See {@link #canLayoutInPlace}.
+   *
+   * @param depth the depth of the node below the root of the layout pass, where its misses are
+   *        counted in the {@link LayoutStats}
+   */
+  /*package*/ static void layoutInPlace(CSSLayoutContext layoutContext, CSSNode node, int depth) {
+    CSSNode parent = node.getParent();
+    CachedCSSLayout lastLayout = node.layoutCache.getCurrent();
+    CSSLayout placedLayout = getPlacedLayout(node);
+    if (!node.isDirty() ||
+        parent == null ||
+        parent.isDirty() ||
+        lastLayout == null ||
+        placedLayout == null) {
+      return;
+    }
+    // The entry is reused by the new layout
+    float parentMaxWidth = lastLayout.parentMaxWidth;
+    node.layout.resetResult();
+    node.layout.dimensions[DIMENSION_WIDTH] = lastLayout.requestedWidth;
+    node.layout.dimensions[DIMENSION_HEIGHT] = lastLayout.requestedHeight;
+    layoutContext.startTopLevelLayout();
+    LayoutStats stats = layoutContext.stats;
+    if (stats == null) {
+      layoutNode(layoutContext, node, parentMaxWidth, parent.layout.direction);
+    } else {
+      stats.depth = depth;
+      layoutNode(layoutContext, node, parentMaxWidth, parent.layout.direction);
+      stats.depth = 0;
+      stats.subtreesLaidOutInPlace++;
+    }
+    node.layout.copy(placedLayout);
+  }
+
   private static int resolveAxis(
       int axis,
       CSSDirection direction) {
@@ -169,6 +419,21 @@ public class LayoutEngine {
     }
   }
 
+  /**
+   * Resolves the direction and axes of the node, unless those of the previous layout still apply.
+   */
+  private static void resolveStyle(CSSNode node, CSSDirection parentDirection) {
+    ResolvedStyle resolvedStyle = node.resolvedStyle;
+    if (!resolvedStyle.isDirectionResolved(node.style, parentDirection)) {
+      CSSDirection direction = resolveDirection(node, parentDirection);
+      resolvedStyle.direction = direction;
+      resolvedStyle.mainAxis = resolveAxis(getFlexDirection(node), direction);
+      resolvedStyle.crossAxis = getCrossFlexDirection(resolvedStyle.mainAxis, direction);
+      resolvedStyle.rowAxis = resolveAxis(CSS_FLEX_DIRECTION_ROW, direction);
+      resolvedStyle.onDirectionResolved(node.style, parentDirection);
+    }
+  }
+
   private static CSSAlign getAlignItem(CSSNode node, CSSNode child) {
     if (child.style.alignSelf != CSSAlign.AUTO) {
       return child.style.alignSelf;
@@ -181,14 +446,81 @@ public class LayoutEngine {
   }
 
   static boolean needsRelayout(CSSNode node, float parentMaxWidth) {
-    return node.isDirty() ||
-        !FloatUtil.floatsEqual(
-            node.lastLayout.requestedHeight,
-            node.layout.dimensions[DIMENSION_HEIGHT]) ||
-        !FloatUtil.floatsEqual(
-            node.lastLayout.requestedWidth,
-            node.layout.dimensions[DIMENSION_WIDTH]) ||
-        !FloatUtil.floatsEqual(node.lastLayout.parentMaxWidth, parentMaxWidth);
+    return node.isDirty() || findReusableLayout(node, parentMaxWidth) < 0;
+  }
+
+  /**
+   * @return the index of the entry of {@link CSSNode#layoutCache} that can be reused for the
+   *         constraints the node is laid out with, or -1 if there is none
+   */
+  private static int findReusableLayout(CSSNode node, float parentMaxWidth) {
+    LayoutCache layoutCache = node.layoutCache;
+    int index = layoutCache.find(
+        node.layout.dimensions[DIMENSION_WIDTH],
+        node.layout.dimensions[DIMENSION_HEIGHT],
+        parentMaxWidth);
+    return index >= 0 && layoutCache.canRestore(node, index) ? index : -1;
+  }
+
+  /**
+   * Same as {@link #needsRelayout}, but says why. Constraints that aren't cached at all are
+   * compared with those of the layout computed or reused last.
+   *
+   * @return the reason why the node needs to be laid out again, or null if it doesn't
+   */
+  static @Nullable RelayoutReason getRelayoutReason(CSSNode node, float parentMaxWidth) {
+    if (node.isDirty()) {
+      return RelayoutReason.DIRTY;
+    }
+    LayoutCache layoutCache = node.layoutCache;
+    int index = layoutCache.find(
+        node.layout.dimensions[DIMENSION_WIDTH],
+        node.layout.dimensions[DIMENSION_HEIGHT],
+        parentMaxWidth);
+    if (index >= 0) {
+      return layoutCache.canRestore(node, index) ? null : RelayoutReason.EVICTED;
+    }
+    CachedCSSLayout lastLayout = layoutCache.getCurrent();
+    if (lastLayout == null) {
+      return RelayoutReason.DIRTY;
+    } else if (!FloatUtil.floatsEqual(
+        lastLayout.requestedWidth,
+        node.layout.dimensions[DIMENSION_WIDTH])) {
+      return RelayoutReason.REQUESTED_WIDTH;
+    } else if (!FloatUtil.floatsEqual(
+        lastLayout.requestedHeight,
+        node.layout.dimensions[DIMENSION_HEIGHT])) {
+      return RelayoutReason.REQUESTED_HEIGHT;
+    }
+    return RelayoutReason.PARENT_MAX_WIDTH;
+  }
+
+  /**
+   * Whether the main dimension of the node is known before laying out its children, in which
+   * case its flexible children share the remaining space.
+   */
+  private static boolean isMainDimDefined(CSSNode node) {
+    int mainDim = dim[getFlexDirection(node)];
+    return !Float.isNaN(node.layout.dimensions[mainDim]) ||
+        (!Float.isNaN(node.style.dimensions[mainDim]) && node.style.dimensions[mainDim] > 0.0);
+  }
+
+  private static void recordChildrenStats(
+      LayoutStats stats,
+      CSSNode node,
+      boolean isMainDimDefined) {
+    int childCount = node.getChildCount();
+    for (int i = 0; i < childCount; i++) {
+      CSSNode child = node.getChildAt(i);
+      if (child.style.positionType == CSSPositionType.ABSOLUTE) {
+        stats.absoluteChildrenPositioned++;
+      } else if (isMainDimDefined && child.style.flex > 0) {
+        stats.flexChildrenResolved++;
+      }
+    }
+    if (childCount > 0 && node.style.flexWrap == CSSWrap.WRAP) {
+      stats.wrapLinesCreated += node.getChildAt(childCount - 1).lineIndex + 1;
+    }
   }
 
   /*package*/ static void layoutNode(
@@ -196,18 +528,111 @@ public class LayoutEngine {
       CSSNode node,
       float parentMaxWidth,
       CSSDirection parentDirection) {
-    if (needsRelayout(node, parentMaxWidth)) {
-      node.lastLayout.requestedWidth = node.layout.dimensions[DIMENSION_WIDTH];
-      node.lastLayout.requestedHeight = node.layout.dimensions[DIMENSION_HEIGHT];
-      node.lastLayout.parentMaxWidth = parentMaxWidth;
+    LayoutTracer tracer = layoutContext.tracer;
+    if (tracer == null) {
+      layoutNodeWithCache(layoutContext, node, parentMaxWidth, parentDirection);
+      return;
+    }
 
-      layoutNodeImpl(layoutContext, node, parentMaxWidth, parentDirection);
-      node.lastLayout.copy(node.layout);
+    tracer.onLayoutNodeEnter(node, parentMaxWidth);
+    long startNanos = System.nanoTime();
+    boolean usedCachedLayout =
+        layoutNodeWithCache(layoutContext, node, parentMaxWidth, parentDirection);
+    tracer.onLayoutNodeExit(
+        node,
+        parentMaxWidth,
+        usedCachedLayout,
+        System.nanoTime() - startNanos);
+  }
+
+  /**
+   * Lays out the node unless its previous layout can be reused.
+   *
+   * @return whether the previous layout was reused
+   */
+  private static boolean layoutNodeWithCache(
+      CSSLayoutContext layoutContext,
+      CSSNode node,
+      float parentMaxWidth,
+      CSSDirection parentDirection) {
+    LayoutStats stats = layoutContext.stats;
+    LayoutCache layoutCache = node.layoutCache;
+    int cachedIndex = node.isDirty() ? -1 : findReusableLayout(node, parentMaxWidth);
+    boolean usedCachedLayout;
+    if (cachedIndex < 0) {
+      if (stats != null) {
+        stats.cacheMisses++;
+        stats.recordMiss(node, getRelayoutReason(node, parentMaxWidth));
+      }
+      if (node.isDirty()) {
+        layoutCache.clear();
+      }
+      int index = layoutCache.start(
+          node.layout.dimensions[DIMENSION_WIDTH],
+          node.layout.dimensions[DIMENSION_HEIGHT],
+          parentMaxWidth);
+
+      SubtreeMemo subtreeMemo = layoutContext.subtreeMemo;
+      if (subtreeMemo != null &&
+          subtreeMemo.restore(layoutContext, node, parentMaxWidth, parentDirection)) {
+        if (stats != null) {
+          stats.subtreeMemoHits++;
+        }
+        layoutCache.finish(node, index, layoutContext.topLevelLayout);
+      } else {
+        if (subtreeMemo != null) {
+          subtreeMemo.startRecording(node);
+        }
+        if (stats == null) {
+          layoutNodeImpl(layoutContext, node, parentMaxWidth, parentDirection);
+        } else {
+          stats.layoutNodeImplCalls++;
+          boolean isMainDimDefined = isMainDimDefined(node);
+          stats.depth++;
+          layoutNodeImpl(layoutContext, node, parentMaxWidth, parentDirection);
+          stats.depth--;
+          recordChildrenStats(stats, node, isMainDimDefined);
+        }
+        layoutCache.finish(node, index, layoutContext.topLevelLayout);
+        if (subtreeMemo != null) {
+          subtreeMemo.finishRecording(node, parentMaxWidth, parentDirection);
+        }
+      }
+      usedCachedLayout = false;
     } else {
-      node.layout.copy(node.lastLayout);
+      if (stats != null) {
+        stats.cacheHits++;
+        if (!layoutCache.isCurrent(cachedIndex)) {
+          stats.subtreesRestored++;
+        }
+      }
+      layoutCache.restore(layoutContext, node, cachedIndex);
+      CachedCSSLayout cachedLayout = layoutCache.get(cachedIndex);
+      if (layoutCache.isFromTopLevelLayout(cachedIndex, layoutContext.topLevelLayout)) {
+        node.layout.copy(cachedLayout);
+      } else {
+        // Its position includes where the parent had placed the node back then, so the node only
+        // offsets where it is placed now, as laying it out again would, and it is reused from
+        // there for the rest of this layout
+        for (int edge = 0; edge < 4; edge++) {
+          node.layout.position[edge] += getOwnPosition(node, edge);
+        }
+        node.layout.dimensions[DIMENSION_WIDTH] = cachedLayout.dimensions[DIMENSION_WIDTH];
+        node.layout.dimensions[DIMENSION_HEIGHT] = cachedLayout.dimensions[DIMENSION_HEIGHT];
+        node.layout.direction = cachedLayout.direction;
+        layoutCache.updatePosition(cachedIndex, node.layout, layoutContext.topLevelLayout);
+      }
+      if (layoutContext.subtreeMemo != null) {
+        layoutContext.subtreeMemo.onCachedLayout(node);
+      }
+      usedCachedLayout = true;
     }
 
-    node.markHasNewLayout();
+    if (stats != null) {
+      stats.nodesVisited++;
+    }
+    node.markHasNewLayout(layoutContext);
+    return usedCachedLayout;
   }
 
   private static void layoutNodeImpl(
@@ -215,16 +640,17 @@ public class LayoutEngine {
       CSSNode node,
       float parentMaxWidth,
       CSSDirection parentDirection) {
+    resolveStyle(node, parentDirection);
     for (int i = 0, childCount = node.getChildCount(); i < childCount; i++) {
       node.getChildAt(i).layout.resetResult();
     }
 
     /** START_GENERATED **/
   
-    CSSDirection direction = resolveDirection(node, parentDirection);
-    int mainAxis = resolveAxis(getFlexDirection(node), direction);
-    int crossAxis = getCrossFlexDirection(mainAxis, direction);
-    int resolvedRowAxis = resolveAxis(CSS_FLEX_DIRECTION_ROW, direction);
+    CSSDirection direction = node.resolvedStyle.direction;
+    int mainAxis = node.resolvedStyle.mainAxis;
+    int crossAxis = node.resolvedStyle.crossAxis;
+    int resolvedRowAxis = node.resolvedStyle.rowAxis;
   
     // Handle width and height style attributes
     setDimensionFromStyle(node, mainAxis);
@@ -235,19 +661,19 @@ public class LayoutEngine {
   
     // The position is set by the parent, but we need to complete it with a
     // delta composed of the margin and left/top/right/bottom
-    node.layout.position[leading[mainAxis]] += node.style.margin.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]) +
+    node.layout.position[leading[mainAxis]] += node.style.margin.resolvedLeading[mainAxis] +
       getRelativePosition(node, mainAxis);
-    node.layout.position[trailing[mainAxis]] += node.style.margin.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis]) +
+    node.layout.position[trailing[mainAxis]] += node.style.margin.resolvedTrailing[mainAxis] +
       getRelativePosition(node, mainAxis);
-    node.layout.position[leading[crossAxis]] += node.style.margin.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]) +
+    node.layout.position[leading[crossAxis]] += node.style.margin.resolvedLeading[crossAxis] +
       getRelativePosition(node, crossAxis);
-    node.layout.position[trailing[crossAxis]] += node.style.margin.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis]) +
+    node.layout.position[trailing[crossAxis]] += node.style.margin.resolvedTrailing[crossAxis] +
       getRelativePosition(node, crossAxis);
   
     // Inline immutable values from the target node to avoid excessive method
     // invocations during the layout calculation.
     int childCount = node.getChildCount();
-    float paddingAndBorderAxisResolvedRow = ((node.style.padding.getWithFallback(leadingSpacing[resolvedRowAxis], leading[resolvedRowAxis]) + node.style.border.getWithFallback(leadingSpacing[resolvedRowAxis], leading[resolvedRowAxis])) + (node.style.padding.getWithFallback(trailingSpacing[resolvedRowAxis], trailing[resolvedRowAxis]) + node.style.border.getWithFallback(trailingSpacing[resolvedRowAxis], trailing[resolvedRowAxis])));
+    float paddingAndBorderAxisResolvedRow = ((node.style.padding.resolvedLeading[resolvedRowAxis] + node.style.border.resolvedLeading[resolvedRowAxis]) + (node.style.padding.resolvedTrailing[resolvedRowAxis] + node.style.border.resolvedTrailing[resolvedRowAxis]));
   
     if (isMeasureDefined(node)) {
       boolean isResolvedRowDimDefined = !Float.isNaN(node.layout.dimensions[dim[resolvedRowAxis]]);
@@ -259,7 +685,7 @@ public class LayoutEngine {
         width = node.layout.dimensions[dim[resolvedRowAxis]];
       } else {
         width = parentMaxWidth -
-          (node.style.margin.getWithFallback(leadingSpacing[resolvedRowAxis], leading[resolvedRowAxis]) + node.style.margin.getWithFallback(trailingSpacing[resolvedRowAxis], trailing[resolvedRowAxis]));
+          (node.style.margin.resolvedLeading[resolvedRowAxis] + node.style.margin.resolvedTrailing[resolvedRowAxis]);
       }
       width -= paddingAndBorderAxisResolvedRow;
   
@@ -274,7 +700,7 @@ public class LayoutEngine {
       if (isRowUndefined || isColumnUndefined) {
         MeasureOutput measureDim = node.measure(
           
-          layoutContext.measureOutput,
+          layoutContext,
           width
         );
         if (isRowUndefined) {
@@ -283,7 +709,7 @@ public class LayoutEngine {
         }
         if (isColumnUndefined) {
           node.layout.dimensions[DIMENSION_HEIGHT] = measureDim.height +
-            ((node.style.padding.getWithFallback(leadingSpacing[CSS_FLEX_DIRECTION_COLUMN], leading[CSS_FLEX_DIRECTION_COLUMN]) + node.style.border.getWithFallback(leadingSpacing[CSS_FLEX_DIRECTION_COLUMN], leading[CSS_FLEX_DIRECTION_COLUMN])) + (node.style.padding.getWithFallback(trailingSpacing[CSS_FLEX_DIRECTION_COLUMN], trailing[CSS_FLEX_DIRECTION_COLUMN]) + node.style.border.getWithFallback(trailingSpacing[CSS_FLEX_DIRECTION_COLUMN], trailing[CSS_FLEX_DIRECTION_COLUMN])));
+            ((node.style.padding.resolvedLeading[CSS_FLEX_DIRECTION_COLUMN] + node.style.border.resolvedLeading[CSS_FLEX_DIRECTION_COLUMN]) + (node.style.padding.resolvedTrailing[CSS_FLEX_DIRECTION_COLUMN] + node.style.border.resolvedTrailing[CSS_FLEX_DIRECTION_COLUMN]));
         }
       }
       if (childCount == 0) {
@@ -295,10 +721,10 @@ public class LayoutEngine {
   
     CSSJustify justifyContent = node.style.justifyContent;
   
-    float leadingPaddingAndBorderMain = (node.style.padding.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]) + node.style.border.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]));
-    float leadingPaddingAndBorderCross = (node.style.padding.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]) + node.style.border.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]));
-    float paddingAndBorderAxisMain = ((node.style.padding.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]) + node.style.border.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis])) + (node.style.padding.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis]) + node.style.border.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis])));
-    float paddingAndBorderAxisCross = ((node.style.padding.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]) + node.style.border.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis])) + (node.style.padding.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis]) + node.style.border.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis])));
+    float leadingPaddingAndBorderMain = (node.style.padding.resolvedLeading[mainAxis] + node.style.border.resolvedLeading[mainAxis]);
+    float leadingPaddingAndBorderCross = (node.style.padding.resolvedLeading[crossAxis] + node.style.border.resolvedLeading[crossAxis]);
+    float paddingAndBorderAxisMain = ((node.style.padding.resolvedLeading[mainAxis] + node.style.border.resolvedLeading[mainAxis]) + (node.style.padding.resolvedTrailing[mainAxis] + node.style.border.resolvedTrailing[mainAxis]));
+    float paddingAndBorderAxisCross = ((node.style.padding.resolvedLeading[crossAxis] + node.style.border.resolvedLeading[crossAxis]) + (node.style.padding.resolvedTrailing[crossAxis] + node.style.border.resolvedTrailing[crossAxis]));
   
     boolean isMainDimDefined = !Float.isNaN(node.layout.dimensions[dim[mainAxis]]);
     boolean isCrossDimDefined = !Float.isNaN(node.layout.dimensions[dim[crossAxis]]);
@@ -381,9 +807,9 @@ public class LayoutEngine {
             !(!Float.isNaN(child.style.dimensions[dim[crossAxis]]) && child.style.dimensions[dim[crossAxis]] >= 0.0)) {
           child.layout.dimensions[dim[crossAxis]] = Math.max(
             boundAxis(child, crossAxis, node.layout.dimensions[dim[crossAxis]] -
-              paddingAndBorderAxisCross - (child.style.margin.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]) + child.style.margin.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis]))),
+              paddingAndBorderAxisCross - (child.style.margin.resolvedLeading[crossAxis] + child.style.margin.resolvedTrailing[crossAxis])),
             // You never want to go smaller than padding
-            ((child.style.padding.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]) + child.style.border.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis])) + (child.style.padding.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis]) + child.style.border.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis])))
+            ((child.style.padding.resolvedLeading[crossAxis] + child.style.border.resolvedLeading[crossAxis]) + (child.style.padding.resolvedTrailing[crossAxis] + child.style.border.resolvedTrailing[crossAxis]))
           );
         } else if (child.style.positionType == CSSPositionType.ABSOLUTE) {
           // Store a private linked list of absolutely positioned children
@@ -406,12 +832,12 @@ public class LayoutEngine {
                 !Float.isNaN(child.style.position[trailing[axis]])) {
               child.layout.dimensions[dim[axis]] = Math.max(
                 boundAxis(child, axis, node.layout.dimensions[dim[axis]] -
-                  ((node.style.padding.getWithFallback(leadingSpacing[axis], leading[axis]) + node.style.border.getWithFallback(leadingSpacing[axis], leading[axis])) + (node.style.padding.getWithFallback(trailingSpacing[axis], trailing[axis]) + node.style.border.getWithFallback(trailingSpacing[axis], trailing[axis]))) -
-                  (child.style.margin.getWithFallback(leadingSpacing[axis], leading[axis]) + child.style.margin.getWithFallback(trailingSpacing[axis], trailing[axis])) -
+                  ((node.style.padding.resolvedLeading[axis] + node.style.border.resolvedLeading[axis]) + (node.style.padding.resolvedTrailing[axis] + node.style.border.resolvedTrailing[axis])) -
+                  (child.style.margin.resolvedLeading[axis] + child.style.margin.resolvedTrailing[axis]) -
                   (Float.isNaN(child.style.position[leading[axis]]) ?  0 : child.style.position[leading[axis]]) -
                   (Float.isNaN(child.style.position[trailing[axis]]) ?  0 : child.style.position[trailing[axis]])),
                 // You never want to go smaller than padding
-                ((child.style.padding.getWithFallback(leadingSpacing[axis], leading[axis]) + child.style.border.getWithFallback(leadingSpacing[axis], leading[axis])) + (child.style.padding.getWithFallback(trailingSpacing[axis], trailing[axis]) + child.style.border.getWithFallback(trailingSpacing[axis], trailing[axis])))
+                ((child.style.padding.resolvedLeading[axis] + child.style.border.resolvedLeading[axis]) + (child.style.padding.resolvedTrailing[axis] + child.style.border.resolvedTrailing[axis]))
               );
             }
           }
@@ -439,8 +865,8 @@ public class LayoutEngine {
           // border and margin. We'll use this partial information, which represents
           // the smallest possible size for the child, to compute the remaining
           // available space.
-          nextContentDim = ((child.style.padding.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]) + child.style.border.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis])) + (child.style.padding.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis]) + child.style.border.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis]))) +
-            (child.style.margin.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]) + child.style.margin.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis]));
+          nextContentDim = ((child.style.padding.resolvedLeading[mainAxis] + child.style.border.resolvedLeading[mainAxis]) + (child.style.padding.resolvedTrailing[mainAxis] + child.style.border.resolvedTrailing[mainAxis])) +
+            (child.style.margin.resolvedLeading[mainAxis] + child.style.margin.resolvedTrailing[mainAxis]);
   
         } else {
           maxWidth = CSSConstants.UNDEFINED;
@@ -450,7 +876,7 @@ public class LayoutEngine {
                 paddingAndBorderAxisResolvedRow;
             } else {
               maxWidth = parentMaxWidth -
-                (node.style.margin.getWithFallback(leadingSpacing[resolvedRowAxis], leading[resolvedRowAxis]) + node.style.margin.getWithFallback(trailingSpacing[resolvedRowAxis], trailing[resolvedRowAxis])) -
+                (node.style.margin.resolvedLeading[resolvedRowAxis] + node.style.margin.resolvedTrailing[resolvedRowAxis]) -
                 paddingAndBorderAxisResolvedRow;
             }
           }
@@ -465,7 +891,7 @@ public class LayoutEngine {
           if (child.style.positionType == CSSPositionType.RELATIVE) {
             nonFlexibleChildrenCount++;
             // At this point we know the final size and margin of the element.
-            nextContentDim = (child.layout.dimensions[dim[mainAxis]] + child.style.margin.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]) + child.style.margin.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis]));
+            nextContentDim = (child.layout.dimensions[dim[mainAxis]] + child.style.margin.resolvedLeading[mainAxis] + child.style.margin.resolvedTrailing[mainAxis]);
           }
         }
   
@@ -507,8 +933,8 @@ public class LayoutEngine {
             child.layout.position[trailing[mainAxis]] = node.layout.dimensions[dim[mainAxis]] - child.layout.dimensions[dim[mainAxis]] - child.layout.position[pos[mainAxis]];
           }
   
-          mainDim += (child.layout.dimensions[dim[mainAxis]] + child.style.margin.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]) + child.style.margin.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis]));
-          crossDim = Math.max(crossDim, boundAxis(child, crossAxis, (child.layout.dimensions[dim[crossAxis]] + child.style.margin.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]) + child.style.margin.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis]))));
+          mainDim += (child.layout.dimensions[dim[mainAxis]] + child.style.margin.resolvedLeading[mainAxis] + child.style.margin.resolvedTrailing[mainAxis]);
+          crossDim = Math.max(crossDim, boundAxis(child, crossAxis, (child.layout.dimensions[dim[crossAxis]] + child.style.margin.resolvedLeading[crossAxis] + child.style.margin.resolvedTrailing[crossAxis])));
         }
   
         if (isSimpleStackCross) {
@@ -551,7 +977,7 @@ public class LayoutEngine {
         currentFlexChild = firstFlexChild;
         while (currentFlexChild != null) {
           baseMainDim = flexibleMainDim * currentFlexChild.style.flex +
-              ((currentFlexChild.style.padding.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]) + currentFlexChild.style.border.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis])) + (currentFlexChild.style.padding.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis]) + currentFlexChild.style.border.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis])));
+              ((currentFlexChild.style.padding.resolvedLeading[mainAxis] + currentFlexChild.style.border.resolvedLeading[mainAxis]) + (currentFlexChild.style.padding.resolvedTrailing[mainAxis] + currentFlexChild.style.border.resolvedTrailing[mainAxis]));
           boundMainDim = boundAxis(currentFlexChild, mainAxis, baseMainDim);
   
           if (baseMainDim != boundMainDim) {
@@ -575,7 +1001,7 @@ public class LayoutEngine {
           // dimension
           currentFlexChild.layout.dimensions[dim[mainAxis]] = boundAxis(currentFlexChild, mainAxis,
             flexibleMainDim * currentFlexChild.style.flex +
-                ((currentFlexChild.style.padding.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]) + currentFlexChild.style.border.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis])) + (currentFlexChild.style.padding.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis]) + currentFlexChild.style.border.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis])))
+                ((currentFlexChild.style.padding.resolvedLeading[mainAxis] + currentFlexChild.style.border.resolvedLeading[mainAxis]) + (currentFlexChild.style.padding.resolvedTrailing[mainAxis] + currentFlexChild.style.border.resolvedTrailing[mainAxis]))
           );
   
           maxWidth = CSSConstants.UNDEFINED;
@@ -584,7 +1010,7 @@ public class LayoutEngine {
               paddingAndBorderAxisResolvedRow;
           } else if (!isMainRowDirection) {
             maxWidth = parentMaxWidth -
-              (node.style.margin.getWithFallback(leadingSpacing[resolvedRowAxis], leading[resolvedRowAxis]) + node.style.margin.getWithFallback(trailingSpacing[resolvedRowAxis], trailing[resolvedRowAxis])) -
+              (node.style.margin.resolvedLeading[resolvedRowAxis] + node.style.margin.resolvedTrailing[resolvedRowAxis]) -
               paddingAndBorderAxisResolvedRow;
           }
   
@@ -636,8 +1062,8 @@ public class LayoutEngine {
           // defined, we override the position to whatever the user said
           // (and margin/border).
           child.layout.position[pos[mainAxis]] = (Float.isNaN(child.style.position[leading[mainAxis]]) ?  0 : child.style.position[leading[mainAxis]]) +
-            node.style.border.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]) +
-            child.style.margin.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]);
+            node.style.border.resolvedLeading[mainAxis] +
+            child.style.margin.resolvedLeading[mainAxis];
         } else {
           // If the child is position absolute (without top/left) or relative,
           // we put it at the current accumulated offset.
@@ -654,10 +1080,10 @@ public class LayoutEngine {
           if (child.style.positionType == CSSPositionType.RELATIVE) {
             // The main dimension is the sum of all the elements dimension plus
             // the spacing.
-            mainDim += betweenMainDim + (child.layout.dimensions[dim[mainAxis]] + child.style.margin.getWithFallback(leadingSpacing[mainAxis], leading[mainAxis]) + child.style.margin.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis]));
+            mainDim += betweenMainDim + (child.layout.dimensions[dim[mainAxis]] + child.style.margin.resolvedLeading[mainAxis] + child.style.margin.resolvedTrailing[mainAxis]);
             // The cross dimension is the max of the elements dimension since there
             // can only be one element in that cross dimension.
-            crossDim = Math.max(crossDim, boundAxis(child, crossAxis, (child.layout.dimensions[dim[crossAxis]] + child.style.margin.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]) + child.style.margin.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis]))));
+            crossDim = Math.max(crossDim, boundAxis(child, crossAxis, (child.layout.dimensions[dim[crossAxis]] + child.style.margin.resolvedLeading[crossAxis] + child.style.margin.resolvedTrailing[crossAxis])));
           }
         }
       }
@@ -683,8 +1109,8 @@ public class LayoutEngine {
           // top/left/bottom/right being set, we override all the previously
           // computed positions to set it correctly.
           child.layout.position[pos[crossAxis]] = (Float.isNaN(child.style.position[leading[crossAxis]]) ?  0 : child.style.position[leading[crossAxis]]) +
-            node.style.border.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]) +
-            child.style.margin.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]);
+            node.style.border.resolvedLeading[crossAxis] +
+            child.style.margin.resolvedLeading[crossAxis];
   
         } else {
           float leadingCrossDim = leadingPaddingAndBorderCross;
@@ -702,16 +1128,16 @@ public class LayoutEngine {
               if (Float.isNaN(child.layout.dimensions[dim[crossAxis]])) {
                 child.layout.dimensions[dim[crossAxis]] = Math.max(
                   boundAxis(child, crossAxis, containerCrossAxis -
-                    paddingAndBorderAxisCross - (child.style.margin.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]) + child.style.margin.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis]))),
+                    paddingAndBorderAxisCross - (child.style.margin.resolvedLeading[crossAxis] + child.style.margin.resolvedTrailing[crossAxis])),
                   // You never want to go smaller than padding
-                  ((child.style.padding.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]) + child.style.border.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis])) + (child.style.padding.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis]) + child.style.border.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis])))
+                  ((child.style.padding.resolvedLeading[crossAxis] + child.style.border.resolvedLeading[crossAxis]) + (child.style.padding.resolvedTrailing[crossAxis] + child.style.border.resolvedTrailing[crossAxis]))
                 );
               }
             } else if (alignItem != CSSAlign.FLEX_START) {
               // The remaining space between the parent dimensions+padding and child
               // dimensions+margin.
               float remainingCrossDim = containerCrossAxis -
-                paddingAndBorderAxisCross - (child.layout.dimensions[dim[crossAxis]] + child.style.margin.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]) + child.style.margin.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis]));
+                paddingAndBorderAxisCross - (child.layout.dimensions[dim[crossAxis]] + child.style.margin.resolvedLeading[crossAxis] + child.style.margin.resolvedTrailing[crossAxis]);
   
               if (alignItem == CSSAlign.CENTER) {
                 leadingCrossDim += remainingCrossDim / 2;
@@ -786,7 +1212,7 @@ public class LayoutEngine {
           if (!Float.isNaN(child.layout.dimensions[dim[crossAxis]])) {
             lineHeight = Math.max(
               lineHeight,
-              child.layout.dimensions[dim[crossAxis]] + (child.style.margin.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]) + child.style.margin.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis]))
+              child.layout.dimensions[dim[crossAxis]] + (child.style.margin.resolvedLeading[crossAxis] + child.style.margin.resolvedTrailing[crossAxis])
             );
           }
         }
@@ -801,14 +1227,14 @@ public class LayoutEngine {
   
           CSSAlign alignContentAlignItem = getAlignItem(node, child);
           if (alignContentAlignItem == CSSAlign.FLEX_START) {
-            child.layout.position[pos[crossAxis]] = currentLead + child.style.margin.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]);
+            child.layout.position[pos[crossAxis]] = currentLead + child.style.margin.resolvedLeading[crossAxis];
           } else if (alignContentAlignItem == CSSAlign.FLEX_END) {
-            child.layout.position[pos[crossAxis]] = currentLead + lineHeight - child.style.margin.getWithFallback(trailingSpacing[crossAxis], trailing[crossAxis]) - child.layout.dimensions[dim[crossAxis]];
+            child.layout.position[pos[crossAxis]] = currentLead + lineHeight - child.style.margin.resolvedTrailing[crossAxis] - child.layout.dimensions[dim[crossAxis]];
           } else if (alignContentAlignItem == CSSAlign.CENTER) {
             float childHeight = child.layout.dimensions[dim[crossAxis]];
             child.layout.position[pos[crossAxis]] = currentLead + (lineHeight - childHeight) / 2;
           } else if (alignContentAlignItem == CSSAlign.STRETCH) {
-            child.layout.position[pos[crossAxis]] = currentLead + child.style.margin.getWithFallback(leadingSpacing[crossAxis], leading[crossAxis]);
+            child.layout.position[pos[crossAxis]] = currentLead + child.style.margin.resolvedLeading[crossAxis];
             // TODO(prenaux): Correctly set the height of items with undefined
             //                (auto) crossAxis dimension.
           }
@@ -827,7 +1253,7 @@ public class LayoutEngine {
       node.layout.dimensions[dim[mainAxis]] = Math.max(
         // We're missing the last padding at this point to get the final
         // dimension
-        boundAxis(node, mainAxis, linesMainDim + (node.style.padding.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis]) + node.style.border.getWithFallback(trailingSpacing[mainAxis], trailing[mainAxis]))),
+        boundAxis(node, mainAxis, linesMainDim + (node.style.padding.resolvedTrailing[mainAxis] + node.style.border.resolvedTrailing[mainAxis])),
         // We can never assign a width smaller than the padding and borders
         paddingAndBorderAxisMain
       );
@@ -882,13 +1308,13 @@ public class LayoutEngine {
             !Float.isNaN(currentAbsoluteChild.style.position[trailing[axis]])) {
           currentAbsoluteChild.layout.dimensions[dim[axis]] = Math.max(
             boundAxis(currentAbsoluteChild, axis, node.layout.dimensions[dim[axis]] -
-              (node.style.border.getWithFallback(leadingSpacing[axis], leading[axis]) + node.style.border.getWithFallback(trailingSpacing[axis], trailing[axis])) -
-              (currentAbsoluteChild.style.margin.getWithFallback(leadingSpacing[axis], leading[axis]) + currentAbsoluteChild.style.margin.getWithFallback(trailingSpacing[axis], trailing[axis])) -
+              (node.style.border.resolvedLeading[axis] + node.style.border.resolvedTrailing[axis]) -
+              (currentAbsoluteChild.style.margin.resolvedLeading[axis] + currentAbsoluteChild.style.margin.resolvedTrailing[axis]) -
               (Float.isNaN(currentAbsoluteChild.style.position[leading[axis]]) ?  0 : currentAbsoluteChild.style.position[leading[axis]]) -
               (Float.isNaN(currentAbsoluteChild.style.position[trailing[axis]]) ?  0 : currentAbsoluteChild.style.position[trailing[axis]])
             ),
             // You never want to go smaller than padding
-            ((currentAbsoluteChild.style.padding.getWithFallback(leadingSpacing[axis], leading[axis]) + currentAbsoluteChild.style.border.getWithFallback(leadingSpacing[axis], leading[axis])) + (currentAbsoluteChild.style.padding.getWithFallback(trailingSpacing[axis], trailing[axis]) + currentAbsoluteChild.style.border.getWithFallback(trailingSpacing[axis], trailing[axis])))
+            ((currentAbsoluteChild.style.padding.resolvedLeading[axis] + currentAbsoluteChild.style.border.resolvedLeading[axis]) + (currentAbsoluteChild.style.padding.resolvedTrailing[axis] + currentAbsoluteChild.style.border.resolvedTrailing[axis]))
           );
         }
   
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Captures a node tree into a compact binary file that {@link LayoutReplayer} can turn back into
+ * an equivalent tree, without any of the app code behind its measure functions.
+ *
+ * Set the recorder as the {@link LayoutTracer} of the {@link CSSLayoutContext} used to lay out the
+ * tree so that it can remember what each measure function returned, then call
+ * {@link #write(CSSNode, OutputStream)}. Nodes measured with several widths have all their results
+ * captured.
+ */
+public class LayoutRecorder implements LayoutTracer {
+
+  /*package*/ static final int MAGIC = 0x43534c43; // CSLC
+  /*package*/ static final int VERSION = 1;
+
+  private final Map<CSSNode, List<float[]>> mMeasureResults = new IdentityHashMap<>();
+
+  @Override
+  public void onLayoutPassStart(CSSNode root) {
+  }
+
+  @Override
+  public void onLayoutPassEnd(CSSNode root, long elapsedNanos) {
+  }
+
+  @Override
+  public void onLayoutNodeEnter(CSSNode node, float parentMaxWidth) {
+  }
+
+  @Override
+  public void onLayoutNodeExit(
+      CSSNode node,
+      float parentMaxWidth,
+      boolean usedCachedLayout,
+      long elapsedNanos) {
+  }
+
+  @Override
+  public void onMeasureEnter(CSSNode node, float width) {
+  }
+
+  @Override
+  public void onMeasureExit(
+      CSSNode node,
+      float width,
+      MeasureOutput measureOutput,
+      boolean usedCachedMeasure,
+      long elapsedNanos) {
+    List<float[]> results = mMeasureResults.get(node);
+    if (results == null) {
+      results = new ArrayList<>(1);
+      mMeasureResults.put(node, results);
+    }
+    for (int i = 0; i < results.size(); i++) {
+      if (FloatUtil.floatsEqual(results.get(i)[0], width)) {
+        results.remove(i);
+        break;
+      }
+    }
+    results.add(new float[] {width, measureOutput.width, measureOutput.height});
+  }
+
+  /**
+   * Forgets the measure results captured so far.
+   */
+  public void clear() {
+    mMeasureResults.clear();
+  }
+
+  /**
+   * Writes the styles and structure of the tree rooted at the given node, along with the measure
+   * results captured for its nodes.
+   */
+  public void write(CSSNode root, OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(out);
+    data.writeInt(MAGIC);
+    data.writeByte(VERSION);
+    writeNode(data, root);
+    data.flush();
+  }
+
+  private void writeNode(DataOutputStream data, CSSNode node) throws IOException {
+    CSSStyle style = node.style;
+    data.writeByte(style.direction.ordinal());
+    data.writeByte(style.flexDirection.ordinal());
+    data.writeByte(style.justifyContent.ordinal());
+    data.writeByte(style.alignContent.ordinal());
+    data.writeByte(style.alignItems.ordinal());
+    data.writeByte(style.alignSelf.ordinal());
+    data.writeByte(style.positionType.ordinal());
+    data.writeByte(style.flexWrap.ordinal());
+    data.writeFloat(style.flex);
+
+    writeSpacing(data, style.margin);
+    writeSpacing(data, style.padding);
+    writeSpacing(data, style.border);
+
+    writeDefinedFloats(
+        data,
+        style.position[CSSLayout.POSITION_LEFT],
+        style.position[CSSLayout.POSITION_TOP],
+        style.position[CSSLayout.POSITION_RIGHT],
+        style.position[CSSLayout.POSITION_BOTTOM],
+        style.dimensions[CSSLayout.DIMENSION_WIDTH],
+        style.dimensions[CSSLayout.DIMENSION_HEIGHT],
+        style.minWidth,
+        style.minHeight,
+        style.maxWidth,
+        style.maxHeight);
+
+    if (!node.isMeasureDefined()) {
+      data.writeInt(-1);
+    } else {
+      List<float[]> results = mMeasureResults.get(node);
+      int resultCount = results == null ? 0 : results.size();
+      data.writeInt(resultCount);
+      for (int i = 0; i < resultCount; i++) {
+        float[] result = results.get(i);
+        data.writeFloat(result[0]);
+        data.writeFloat(result[1]);
+        data.writeFloat(result[2]);
+      }
+    }
+
+    int childCount = node.getChildCount();
+    data.writeInt(childCount);
+    for (int i = 0; i < childCount; i++) {
+      writeNode(data, node.getChildAt(i));
+    }
+  }
+
+  private static void writeSpacing(DataOutputStream data, Spacing spacing) throws IOException {
+    float[] values = new float[Spacing.ALL + 1];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = spacing.getRaw(i);
+    }
+    writeDefinedFloats(data, values);
+
+    int defaultsMask = 0;
+    for (int i = 0; i <= Spacing.ALL; i++) {
+      if (!FloatUtil.floatsEqual(spacing.getDefault(i), getInitialDefault(i))) {
+        defaultsMask |= 1 << i;
+      }
+    }
+    data.writeShort(defaultsMask);
+    for (int i = 0; i <= Spacing.ALL; i++) {
+      if ((defaultsMask & (1 << i)) != 0) {
+        data.writeFloat(spacing.getDefault(i));
+      }
+    }
+  }
+
+  /**
+   * Writes a mask of the values that are not {@link CSSConstants#UNDEFINED}, followed by these
+   * values, so that the many undefined values of a typical style take no space.
+   */
+  private static void writeDefinedFloats(DataOutputStream data, float... values)
+      throws IOException {
+    int mask = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (!CSSConstants.isUndefined(values[i])) {
+        mask |= 1 << i;
+      }
+    }
+    data.writeShort(mask);
+    for (int i = 0; i < values.length; i++) {
+      if ((mask & (1 << i)) != 0) {
+        data.writeFloat(values[i]);
+      }
+    }
+  }
+
+  /*package*/ static float getInitialDefault(int spacingType) {
+    return spacingType == Spacing.START || spacingType == Spacing.END ? CSSConstants.UNDEFINED : 0;
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Rebuilds a node tree from a file written by {@link LayoutRecorder}. Nodes that had a measure
+ * function get a {@link RecordedMeasureFunction} answering with the captured results, so that
+ * captured workloads can be laid out again in benchmarks and tests without the app that produced
+ * them.
+ */
+public class LayoutReplayer {
+
+  /**
+   * Measure function returning the results captured for a node. When the node is measured with a
+   * width that wasn't captured, the result captured for the closest width is returned.
+   */
+  public static class RecordedMeasureFunction implements CSSNode.MeasureFunction {
+
+    private final float[] mWidths;
+    private final float[] mMeasuredWidths;
+    private final float[] mMeasuredHeights;
+
+    /*package*/ RecordedMeasureFunction(
+        float[] widths,
+        float[] measuredWidths,
+        float[] measuredHeights) {
+      mWidths = widths;
+      mMeasuredWidths = measuredWidths;
+      mMeasuredHeights = measuredHeights;
+    }
+
+    public int getRecordedCount() {
+      return mWidths.length;
+    }
+
+    @Override
+    public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+      int closest = -1;
+      float closestDistance = Float.POSITIVE_INFINITY;
+      for (int i = 0; i < mWidths.length; i++) {
+        if (FloatUtil.floatsEqual(mWidths[i], width)) {
+          closest = i;
+          break;
+        }
+        // An undefined width only matches another undefined width
+        if (CSSConstants.isUndefined(mWidths[i]) || CSSConstants.isUndefined(width)) {
+          continue;
+        }
+        float distance = Math.abs(mWidths[i] - width);
+        if (distance < closestDistance) {
+          closest = i;
+          closestDistance = distance;
+        }
+      }
+      if (closest == -1) {
+        measureOutput.width = 0;
+        measureOutput.height = 0;
+      } else {
+        measureOutput.width = mMeasuredWidths[closest];
+        measureOutput.height = mMeasuredHeights[closest];
+      }
+    }
+  }
+
+  public static CSSNode read(InputStream in) throws IOException {
+    DataInputStream data = new DataInputStream(in);
+    if (data.readInt() != LayoutRecorder.MAGIC) {
+      throw new IOException("Not a layout capture");
+    }
+    int version = data.readUnsignedByte();
+    if (version != LayoutRecorder.VERSION) {
+      throw new IOException("Unsupported layout capture version: " + version);
+    }
+    return readNode(data);
+  }
+
+  private static CSSNode readNode(DataInputStream data) throws IOException {
+    CSSNode node = new CSSNode();
+    CSSStyle style = node.style;
+    // Fields CSSNode has setters for are set through them, which keeps the fingerprint of the
+    // style up to date, the others are part of it as they are
+    node.setDirection(readEnum(data, CSSDirection.values()));
+    node.setFlexDirection(readEnum(data, CSSFlexDirection.values()));
+    node.setJustifyContent(readEnum(data, CSSJustify.values()));
+    style.alignContent = readEnum(data, CSSAlign.values());
+    node.setAlignItems(readEnum(data, CSSAlign.values()));
+    node.setAlignSelf(readEnum(data, CSSAlign.values()));
+    node.setPositionType(readEnum(data, CSSPositionType.values()));
+    node.setWrap(readEnum(data, CSSWrap.values()));
+    node.setFlex(data.readFloat());
+
+    readSpacing(data, style.margin);
+    readSpacing(data, style.padding);
+    readSpacing(data, style.border);
+
+    float[] values = readDefinedFloats(data, 10);
+    node.setPositionLeft(values[0]);
+    node.setPositionTop(values[1]);
+    node.setPositionRight(values[2]);
+    node.setPositionBottom(values[3]);
+    node.setStyleWidth(values[4]);
+    node.setStyleHeight(values[5]);
+    style.minWidth = values[6];
+    style.minHeight = values[7];
+    style.maxWidth = values[8];
+    style.maxHeight = values[9];
+
+    int resultCount = data.readInt();
+    if (resultCount >= 0) {
+      float[] widths = new float[resultCount];
+      float[] measuredWidths = new float[resultCount];
+      float[] measuredHeights = new float[resultCount];
+      for (int i = 0; i < resultCount; i++) {
+        widths[i] = data.readFloat();
+        measuredWidths[i] = data.readFloat();
+        measuredHeights[i] = data.readFloat();
+      }
+      node.setMeasureFunction(
+          new RecordedMeasureFunction(widths, measuredWidths, measuredHeights));
+    }
+
+    int childCount = data.readInt();
+    for (int i = 0; i < childCount; i++) {
+      node.addChildAt(readNode(data), i);
+    }
+    return node;
+  }
+
+  private static void readSpacing(DataInputStream data, Spacing spacing) throws IOException {
+    float[] values = readDefinedFloats(data, Spacing.ALL + 1);
+    for (int i = 0; i < values.length; i++) {
+      if (!CSSConstants.isUndefined(values[i])) {
+        spacing.set(i, values[i]);
+      }
+    }
+
+    int defaultsMask = data.readUnsignedShort();
+    for (int i = 0; i <= Spacing.ALL; i++) {
+      if ((defaultsMask & (1 << i)) != 0) {
+        spacing.setDefault(i, data.readFloat());
+      }
+    }
+  }
+
+  private static float[] readDefinedFloats(DataInputStream data, int count) throws IOException {
+    int mask = data.readUnsignedShort();
+    float[] values = new float[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = (mask & (1 << i)) != 0 ? data.readFloat() : CSSConstants.UNDEFINED;
+    }
+    return values;
+  }
+
+  private static <T extends Enum<T>> T readEnum(DataInputStream data, T[] values)
+      throws IOException {
+    int ordinal = data.readUnsignedByte();
+    if (ordinal >= values.length) {
+      throw new IOException("Invalid " + values.getClass().getComponentType().getSimpleName()
+          + " ordinal: " + ordinal);
+    }
+    return values[ordinal];
+  }
+}
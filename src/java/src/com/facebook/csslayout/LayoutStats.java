@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Counters describing the work done by the last layout pass of a {@link CSSLayoutContext}. Only
+ * collected when enabled with {@link CSSLayoutContext#setStatsEnabled(boolean)}, and reset at the
+ * start of every {@link CSSNode#calculateLayout}.
+ */
+public class LayoutStats {
+
+  /**
+   * Number of nodes {@link LayoutEngine#layoutNode} was called on, cached or not.
+   */
+  public int nodesVisited;
+
+  /**
+   * Number of nodes that were actually laid out, i.e. whose subtree was traversed again.
+   */
+  public int layoutNodeImplCalls;
+
+  /**
+   * Number of nodes whose previous layout was reused by {@link LayoutEngine#needsRelayout}.
+   */
+  public int cacheHits;
+
+  /**
+   * Number of nodes for which {@link LayoutEngine#needsRelayout} asked for a new layout. See
+   * {@link #getMisses(RelayoutReason)} for why.
+   */
+  public int cacheMisses;
+
+  /**
+   * Number of cache hits that reused a layout other than the last one computed for the node, and
+   * thus copied the cached layouts of its subtree back into it.
+   */
+  public int subtreesRestored;
+
+  /**
+   * Number of nodes laid out by copying the layouts of an identical subtree from the
+   * {@link SubtreeMemo} of the context.
+   */
+  public int subtreeMemoHits;
+
+  /**
+   * Number of calls to a {@link CSSNode.MeasureFunction}.
+   */
+  public int measureCalls;
+
+  /**
+   * Number of measures answered from the results cached by a node instead of calling its
+   * {@link CSSNode.MeasureFunction}.
+   */
+  public int measureCacheHits;
+
+  /**
+   * Number of measures answered from the {@link SharedMeasureCache} of the context instead of
+   * calling the {@link CSSNode.KeyedMeasureFunction} of the node.
+   */
+  public int sharedMeasureCacheHits;
+
+  /**
+   * Number of nodes moved by a change of their relative offsets without laying out the node or
+   * its ancestors again, see {@link CSSNode#setPositionTop}.
+   */
+  public int relativePositionsUpdated;
+
+  /**
+   * Number of dirty subtrees laid out again on their own, without laying out their ancestors,
+   * see {@link LayoutEngine#layoutInPlace}.
+   */
+  public int subtreesLaidOutInPlace;
+
+  /**
+   * Number of flexible children whose size was resolved from the remaining space of their parent.
+   */
+  public int flexChildrenResolved;
+
+  /**
+   * Number of lines created by containers with {@link CSSWrap#WRAP}.
+   */
+  public int wrapLinesCreated;
+
+  /**
+   * Number of absolutely positioned children that were positioned in their parent.
+   */
+  public int absoluteChildrenPositioned;
+
+  private static final int REASON_COUNT = RelayoutReason.values().length;
+
+  /*package*/ int depth;
+
+  private final int[] mMisses = new int[REASON_COUNT];
+  private int[][] mMissesByDepth = new int[REASON_COUNT][16];
+  private int mMaxMissDepth = -1;
+  private final CSSNode[] mShallowestMisses = new CSSNode[REASON_COUNT];
+  private final int[] mShallowestMissDepths = new int[REASON_COUNT];
+
+  /**
+   * @return the fraction of the nodes visited by the last pass whose layout was reused, or 0 if
+   *         no node was visited
+   */
+  public float getCacheHitRate() {
+    int lookups = cacheHits + cacheMisses;
+    return lookups == 0 ? 0 : (float) cacheHits / lookups;
+  }
+
+  /**
+   * @return the number of cache misses of the last pass that were caused by the given reason
+   */
+  public int getMisses(RelayoutReason reason) {
+    return mMisses[reason.ordinal()];
+  }
+
+  /**
+   * @return the number of cache misses caused by the given reason for nodes at the given depth,
+   *         the root of the pass being at depth 0
+   */
+  public int getMissesAtDepth(RelayoutReason reason, int depth) {
+    int[] missesByDepth = mMissesByDepth[reason.ordinal()];
+    return depth < missesByDepth.length ? missesByDepth[depth] : 0;
+  }
+
+  /**
+   * @return the depth of the deepest node that missed the cache, or -1 if none did
+   */
+  public int getMaxMissDepth() {
+    return mMaxMissDepth;
+  }
+
+  /**
+   * @return the node closest to the root that missed the cache for the given reason, and thus
+   *         the one that caused the largest subtree to be laid out again, or null if none did
+   */
+  public @Nullable CSSNode getShallowestMiss(RelayoutReason reason) {
+    return mShallowestMisses[reason.ordinal()];
+  }
+
+  /**
+   * @return the depth of {@link #getShallowestMiss}, or -1 if there is none
+   */
+  public int getShallowestMissDepth(RelayoutReason reason) {
+    return mShallowestMisses[reason.ordinal()] == null ? -1 : mShallowestMissDepths[reason.ordinal()];
+  }
+
+  /*package*/ void recordMiss(CSSNode node, RelayoutReason reason) {
+    int index = reason.ordinal();
+    mMisses[index]++;
+
+    if (depth >= mMissesByDepth[index].length) {
+      for (int i = 0; i < REASON_COUNT; i++) {
+        mMissesByDepth[i] = Arrays.copyOf(mMissesByDepth[i], Math.max(depth + 1, 2 * depth));
+      }
+    }
+    mMissesByDepth[index][depth]++;
+    mMaxMissDepth = Math.max(mMaxMissDepth, depth);
+
+    if (mShallowestMisses[index] == null || depth < mShallowestMissDepths[index]) {
+      mShallowestMisses[index] = node;
+      mShallowestMissDepths[index] = depth;
+    }
+  }
+
+  public void reset() {
+    nodesVisited = 0;
+    layoutNodeImplCalls = 0;
+    cacheHits = 0;
+    cacheMisses = 0;
+    subtreesRestored = 0;
+    subtreeMemoHits = 0;
+    measureCalls = 0;
+    measureCacheHits = 0;
+    sharedMeasureCacheHits = 0;
+    relativePositionsUpdated = 0;
+    subtreesLaidOutInPlace = 0;
+    flexChildrenResolved = 0;
+    wrapLinesCreated = 0;
+    absoluteChildrenPositioned = 0;
+
+    depth = 0;
+    Arrays.fill(mMisses, 0);
+    for (int i = 0; i < REASON_COUNT; i++) {
+      Arrays.fill(mMissesByDepth[i], 0);
+    }
+    mMaxMissDepth = -1;
+    Arrays.fill(mShallowestMisses, null);
+  }
+
+  @Override
+  public String toString() {
+    return "stats: {" +
+        "nodesVisited: " + nodesVisited + ", " +
+        "layoutNodeImplCalls: " + layoutNodeImplCalls + ", " +
+        "cacheHits: " + cacheHits + ", " +
+        "cacheMisses: " + cacheMisses + ", " +
+        "subtreesRestored: " + subtreesRestored + ", " +
+        "subtreeMemoHits: " + subtreeMemoHits + ", " +
+        "measureCalls: " + measureCalls + ", " +
+        "measureCacheHits: " + measureCacheHits + ", " +
+        "sharedMeasureCacheHits: " + sharedMeasureCacheHits + ", " +
+        "relativePositionsUpdated: " + relativePositionsUpdated + ", " +
+        "subtreesLaidOutInPlace: " + subtreesLaidOutInPlace + ", " +
+        "flexChildrenResolved: " + flexChildrenResolved + ", " +
+        "wrapLinesCreated: " + wrapLinesCreated + ", " +
+        "absoluteChildrenPositioned: " + absoluteChildrenPositioned + ", " +
+        "missesByReason: " + missesToString() +
+        "}";
+  }
+
+  private String missesToString() {
+    StringBuilder result = new StringBuilder("{");
+    for (RelayoutReason reason : RelayoutReason.values()) {
+      if (reason.ordinal() > 0) {
+        result.append(", ");
+      }
+      result.append(reason).append(": ").append(mMisses[reason.ordinal()]);
+      if (mMisses[reason.ordinal()] > 0) {
+        result.append(" (by depth: [");
+        for (int i = 0; i <= mMaxMissDepth; i++) {
+          if (i > 0) {
+            result.append(", ");
+          }
+          result.append(getMissesAtDepth(reason, i));
+        }
+        result.append("])");
+      }
+    }
+    return result.append("}").toString();
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+/**
+ * Receives a callback at the start and end of each layout pass, and before and after each node is
+ * laid out, and each node is measured, during the pass. Register one with
+ * {@link CSSLayoutContext#setLayoutTracer(LayoutTracer)}.
+ *
+ * NB: the callbacks are made from the thread calling {@link CSSNode#calculateLayout}, in the middle
+ * of the layout pass, so they must not mutate the tree.
+ */
+public interface LayoutTracer {
+
+  /**
+   * Called at the start of {@link CSSNode#calculateLayout}, before any node is laid out. The
+   * subtrees laid out in place before the root is laid out are part of the pass, see
+   * {@link LayoutEngine#layoutInPlace}.
+   *
+   * @param root the node the layout is calculated for
+   */
+  public void onLayoutPassStart(CSSNode root);
+
+  /**
+   * Called at the end of {@link CSSNode#calculateLayout}, after the whole tree has been laid out.
+   *
+   * @param root the node the layout is calculated for
+   * @param elapsedNanos time spent in the pass, including the time spent in callbacks
+   */
+  public void onLayoutPassEnd(CSSNode root, long elapsedNanos);
+
+  /**
+   * Called before the given node is laid out.
+   *
+   * @param parentMaxWidth the maximum width the parent allows this node to take
+   */
+  public void onLayoutNodeEnter(CSSNode node, float parentMaxWidth);
+
+  /**
+   * Called after the given node and its subtree have been laid out.
+   *
+   * @param parentMaxWidth the maximum width the parent allows this node to take
+   * @param usedCachedLayout whether the previous layout of the node was reused instead of laying
+   *        it out again
+   * @param elapsedNanos time spent laying out the node, including its subtree and the time spent
+   *        in callbacks of its descendants
+   */
+  public void onLayoutNodeExit(
+      CSSNode node,
+      float parentMaxWidth,
+      boolean usedCachedLayout,
+      long elapsedNanos);
+
+  /**
+   * Called before the given node is measured, by its {@link CSSNode.MeasureFunction} or from one of
+   * the caches of its measures.
+   *
+   * @param width the width the node is measured with
+   */
+  public void onMeasureEnter(CSSNode node, float width);
+
+  /**
+   * Called after the given node was measured.
+   *
+   * @param width the width the node was measured with
+   * @param measureOutput the size returned by the measure function
+   * @param usedCachedMeasure whether the size was reused from a cache instead of calling the
+   *        measure function, see {@link MeasureCache} and {@link SharedMeasureCache}
+   * @param elapsedNanos time spent in the measure function, 0 if it wasn't called
+   */
+  public void onMeasureExit(
+      CSSNode node,
+      float width,
+      MeasureOutput measureOutput,
+      boolean usedCachedMeasure,
+      long elapsedNanos);
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+/**
+ * The last results of the {@link CSSNode.MeasureFunction} of a node, keyed on the width it was
+ * called with. A node is often measured several times with the same width, e.g. by a parent
+ * measuring its children before laying them out, or by the following passes when the node itself
+ * didn't change. Holds up to {@link #MAX_ENTRIES} results and replaces the oldest one.
+ *
+ * The results are only valid until the node is dirtied or gets a new measure function, at which
+ * point {@link #clear} must be called.
+ */
+/*package*/ class MeasureCache {
+
+  /*package*/ static final int MAX_ENTRIES = 4;
+
+  private final float[] mWidths = new float[MAX_ENTRIES];
+  private final float[] mMeasuredWidths = new float[MAX_ENTRIES];
+  private final float[] mMeasuredHeights = new float[MAX_ENTRIES];
+  private int mSize;
+  private int mNext;
+
+  /**
+   * @return the number of results in the cache
+   */
+  /*package*/ int size() {
+    return mSize;
+  }
+
+  /*package*/ void clear() {
+    mSize = 0;
+    mNext = 0;
+  }
+
+  /**
+   * Fills the given output with the result of a measure at the given width, if there is one.
+   *
+   * @param monotonic whether the results come from a {@link CSSNode.MonotonicMeasureFunction}, in
+   *                  which case a result also applies to the widths between the width it measured
+   *                  and the width it was measured at
+   * @return whether the result was found
+   */
+  /*package*/ boolean get(float width, boolean monotonic, MeasureOutput measureOutput) {
+    for (int i = 0; i < mSize; i++) {
+      if (FloatUtil.floatsEqual(mWidths[i], width) ||
+          (monotonic && fitsWithin(width, mWidths[i], mMeasuredWidths[i]))) {
+        measureOutput.width = mMeasuredWidths[i];
+        measureOutput.height = mMeasuredHeights[i];
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return whether the given width is between the width measured at the cached width and the
+   *         cached width itself, an undefined cached width being unbounded
+   */
+  private static boolean fitsWithin(float width, float cachedWidth, float measuredWidth) {
+    if (CSSConstants.isUndefined(width) || CSSConstants.isUndefined(measuredWidth)) {
+      return false;
+    }
+    return width >= measuredWidth &&
+        (CSSConstants.isUndefined(cachedWidth) || width <= cachedWidth);
+  }
+
+  /*package*/ float getWidth(int index) {
+    return mWidths[index];
+  }
+
+  /*package*/ float getMeasuredWidth(int index) {
+    return mMeasuredWidths[index];
+  }
+
+  /*package*/ float getMeasuredHeight(int index) {
+    return mMeasuredHeights[index];
+  }
+
+  /*package*/ void put(float width, MeasureOutput measureOutput) {
+    mWidths[mNext] = width;
+    mMeasuredWidths[mNext] = measureOutput.width;
+    mMeasuredHeights[mNext] = measureOutput.height;
+    mNext = (mNext + 1) % MAX_ENTRIES;
+    if (mSize < MAX_ENTRIES) {
+      mSize++;
+    }
+  }
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.facebook.infer.annotation.Assertions;
+
+/**
+ * {@link LayoutTracer} profiling calls to {@link CSSNode.MeasureFunction}s. It keeps a latency
+ * histogram for each measure function class, reports the calls slower than a threshold, and counts
+ * how many times a node was measured again with a width it had already been measured with in the
+ * same pass, i.e. the calls the {@link MeasureCache} of the node didn't save since the width was
+ * evicted from it.
+ *
+ * Like {@link CSSLayoutContext}, an instance must not be shared between threads.
+ */
+public class MeasureProfiler implements LayoutTracer {
+
+  /**
+   * Notified of each call to a measure function slower than the threshold of the profiler.
+   */
+  public static interface SlowMeasureListener {
+
+    public void onSlowMeasure(CSSNode node, float width, long elapsedNanos);
+  }
+
+  /**
+   * Latencies of the calls to the measure functions of a class. Calls are counted in buckets of
+   * increasing powers of two nanoseconds: bucket {@code i} counts calls that took from
+   * {@code 2^i} (0 for the first bucket) to {@code 2^(i + 1) - 1} nanoseconds.
+   */
+  public static class MeasureHistogram {
+
+    public static final int BUCKET_COUNT = 64;
+
+    private final long[] mBuckets = new long[BUCKET_COUNT];
+    private long mCount;
+    private long mTotalNanos;
+    private long mMaxNanos;
+    private long mSlowCount;
+    private long mRepeatedCount;
+
+    public long getCount() {
+      return mCount;
+    }
+
+    public long getTotalNanos() {
+      return mTotalNanos;
+    }
+
+    public long getMaxNanos() {
+      return mMaxNanos;
+    }
+
+    public long getBucketCount(int bucket) {
+      return mBuckets[bucket];
+    }
+
+    /**
+     * @return the number of calls slower than the threshold of the profiler
+     */
+    public long getSlowCount() {
+      return mSlowCount;
+    }
+
+    /**
+     * @return the number of calls that measured a node with a width it had already been measured
+     *         with in the same layout pass
+     */
+    public long getRepeatedCount() {
+      return mRepeatedCount;
+    }
+
+    /**
+     * @return an upper bound of the latency under which the given fraction (between 0 and 1) of
+     *         the calls completed, precise to the bucket
+     */
+    public long getPercentileNanos(double fraction) {
+      long threshold = (long) Math.ceil(fraction * mCount);
+      long count = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        count += mBuckets[i];
+        if (count >= threshold && count > 0) {
+          long upperBound = i == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+          return Math.min(upperBound, mMaxNanos);
+        }
+      }
+      return 0;
+    }
+
+    /*package*/ void record(long elapsedNanos, boolean slow, boolean repeated) {
+      mBuckets[getBucket(elapsedNanos)]++;
+      mCount++;
+      mTotalNanos += elapsedNanos;
+      mMaxNanos = Math.max(mMaxNanos, elapsedNanos);
+      if (slow) {
+        mSlowCount++;
+      }
+      if (repeated) {
+        mRepeatedCount++;
+      }
+    }
+
+    /*package*/ static int getBucket(long elapsedNanos) {
+      return elapsedNanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+      return "{" +
+          "count: " + mCount + ", " +
+          "totalNanos: " + mTotalNanos + ", " +
+          "p50: " + getPercentileNanos(0.5) + ", " +
+          "p99: " + getPercentileNanos(0.99) + ", " +
+          "maxNanos: " + mMaxNanos + ", " +
+          "slow: " + mSlowCount + ", " +
+          "repeated: " + mRepeatedCount +
+          "}";
+    }
+  }
+
+  private final long mSlowThresholdNanos;
+  private @Nullable SlowMeasureListener mSlowMeasureListener;
+  private final Map<Class<?>, MeasureHistogram> mHistograms = new HashMap<>();
+  private final Map<CSSNode, List<Float>> mPassWidths = new IdentityHashMap<>();
+  private int mPassRepeatedCount;
+  private int mPassSlowCount;
+
+  /**
+   * @param slowThresholdNanos duration above which a call to a measure function is reported as
+   *                           slow
+   */
+  public MeasureProfiler(long slowThresholdNanos) {
+    mSlowThresholdNanos = slowThresholdNanos;
+  }
+
+  public void setSlowMeasureListener(@Nullable SlowMeasureListener slowMeasureListener) {
+    mSlowMeasureListener = slowMeasureListener;
+  }
+
+  /**
+   * @return the histogram of the measure functions of the given class since the profiler was
+   *         created or {@link #reset}, or null if none was called
+   */
+  public @Nullable MeasureHistogram getHistogram(Class<? extends CSSNode.MeasureFunction> cls) {
+    return mHistograms.get(cls);
+  }
+
+  public Map<Class<?>, MeasureHistogram> getHistograms() {
+    return Collections.unmodifiableMap(mHistograms);
+  }
+
+  /**
+   * @return the number of calls of the last layout pass that measured a node with a width it had
+   *         already been measured with in that pass
+   */
+  public int getRepeatedMeasureCount() {
+    return mPassRepeatedCount;
+  }
+
+  /**
+   * @return the number of calls of the last layout pass slower than the threshold
+   */
+  public int getSlowMeasureCount() {
+    return mPassSlowCount;
+  }
+
+  public void reset() {
+    mHistograms.clear();
+    mPassWidths.clear();
+    mPassRepeatedCount = 0;
+    mPassSlowCount = 0;
+  }
+
+  @Override
+  public void onLayoutPassStart(CSSNode root) {
+    mPassWidths.clear();
+    mPassRepeatedCount = 0;
+    mPassSlowCount = 0;
+  }
+
+  @Override
+  public void onLayoutPassEnd(CSSNode root, long elapsedNanos) {
+  }
+
+  @Override
+  public void onLayoutNodeEnter(CSSNode node, float parentMaxWidth) {
+  }
+
+  @Override
+  public void onLayoutNodeExit(
+      CSSNode node,
+      float parentMaxWidth,
+      boolean usedCachedLayout,
+      long elapsedNanos) {
+  }
+
+  @Override
+  public void onMeasureEnter(CSSNode node, float width) {
+  }
+
+  @Override
+  public void onMeasureExit(
+      CSSNode node,
+      float width,
+      MeasureOutput measureOutput,
+      boolean usedCachedMeasure,
+      long elapsedNanos) {
+    if (usedCachedMeasure) {
+      return;
+    }
+    CSSNode.MeasureFunction measureFunction = Assertions.assertNotNull(node.getMeasureFunction());
+    MeasureHistogram histogram = mHistograms.get(measureFunction.getClass());
+    if (histogram == null) {
+      histogram = new MeasureHistogram();
+      mHistograms.put(measureFunction.getClass(), histogram);
+    }
+
+    boolean repeated = recordWidth(node, width);
+    if (repeated) {
+      mPassRepeatedCount++;
+    }
+    boolean slow = elapsedNanos > mSlowThresholdNanos;
+    if (slow) {
+      mPassSlowCount++;
+      if (mSlowMeasureListener != null) {
+        mSlowMeasureListener.onSlowMeasure(node, width, elapsedNanos);
+      }
+    }
+    histogram.record(elapsedNanos, slow, repeated);
+  }
+
+  /**
+   * @return whether the node had already been measured with the given width in this pass
+   */
+  private boolean recordWidth(CSSNode node, float width) {
+    List<Float> widths = mPassWidths.get(node);
+    if (widths == null) {
+      widths = new ArrayList<>(2);
+      mPassWidths.put(node, widths);
+    }
+    for (int i = 0; i < widths.size(); i++) {
+      if (FloatUtil.floatsEqual(widths.get(i), width)) {
+        return true;
+      }
+    }
+    widths.add(width);
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("measures: {");
+    boolean first = true;
+    for (Map.Entry<Class<?>, MeasureHistogram> entry : mHistograms.entrySet()) {
+      if (!first) {
+        result.append(", ");
+      }
+      first = false;
+      result.append(entry.getKey().getName()).append(": ").append(entry.getValue());
+    }
+    return result.append("}").toString();
+  }
+}
@@ -0,0 +1,380 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.facebook.infer.annotation.Assertions;
+
+/**
+ * Layouts of trees kept in a memory mapped file from one run of the app to the next, so that the
+ * first layout of a tree that was laid out in a previous run doesn't have to lay out anything.
+ *
+ * Once a tree is laid out, {@link #put} stores the cached layout and the measure results of each
+ * of its nodes under the {@link CSSNode#getSubtreeFingerprint} of its root, and {@link #save}
+ * writes them to the file. On the next run, {@link #hydrate} fills the caches of an identical
+ * tree from the file, after which {@link CSSNode#calculateLayout} finds all its layouts in them.
+ *
+ * The fingerprint doesn't cover what the measure functions measure, so the measure results are
+ * checked before hydrating a tree. For a {@link CSSNode.KeyedMeasureFunction} the hash code of its
+ * key must be the same as when the tree was stored, which requires keys with a hash code that
+ * doesn't change between runs such as strings. Other measure functions are called again with the
+ * widths they were called with and must return the same results.
+ *
+ * Like {@link CSSLayoutContext}, an instance must not be shared between threads.
+ */
+public class PersistentLayoutCache {
+
+  /*package*/ static final int MAGIC = 0x43534c50; // CSLP
+  /*package*/ static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 12;
+  // Fingerprint, node count and length of the nodes
+  private static final int RECORD_HEADER_SIZE = 16;
+  // Positions, dimensions and direction
+  private static final int LAYOUT_SIZE = 6 * 4 + 1;
+  // Constraints, cached and final layouts and line index
+  private static final int NODE_LAYOUTS_SIZE = 3 * 4 + 2 * LAYOUT_SIZE + 4;
+  // Followed by the measure kind, key hash and measure count
+  private static final int NODE_SIZE = NODE_LAYOUTS_SIZE + 1 + 4 + 1;
+  // Width, measured width and measured height
+  private static final int MEASURE_SIZE = 3 * 4;
+
+  private static final byte NOT_MEASURED = 0;
+  private static final byte MEASURED_WITH_KEY = 1;
+  private static final byte MEASURED = 2;
+
+  private final File mFile;
+  private @Nullable MappedByteBuffer mBuffer;
+  // Offset in the file of the record of each fingerprint
+  private final Map<Long, Integer> mRecordOffsets = new HashMap<>();
+  private final Map<Long, byte[]> mPendingRecords = new LinkedHashMap<>();
+
+  private long mHitCount;
+  private long mMissCount;
+
+  /**
+   * Maps the given file, if it exists, and indexes the trees stored in it. A file that wasn't
+   * written by this version of the cache is ignored and replaced on {@link #save}.
+   */
+  public PersistentLayoutCache(File file) throws IOException {
+    mFile = file;
+    map();
+  }
+
+  private void map() throws IOException {
+    mBuffer = null;
+    mRecordOffsets.clear();
+    if (!mFile.isFile() || mFile.length() < HEADER_SIZE) {
+      return;
+    }
+    MappedByteBuffer buffer;
+    try (RandomAccessFile file = new RandomAccessFile(mFile, "r")) {
+      buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+    }
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+      return;
+    }
+    int recordCount = buffer.getInt(8);
+    int offset = HEADER_SIZE;
+    for (int i = 0; i < recordCount; i++) {
+      if (offset + RECORD_HEADER_SIZE > buffer.limit()) {
+        // Truncated file, only keep the complete records
+        break;
+      }
+      long fingerprint = buffer.getLong(offset);
+      int length = buffer.getInt(offset + 12);
+      if (offset + RECORD_HEADER_SIZE + length > buffer.limit()) {
+        break;
+      }
+      mRecordOffsets.put(fingerprint, offset);
+      offset += RECORD_HEADER_SIZE + length;
+    }
+    mBuffer = buffer;
+  }
+
+  /**
+   * @return the number of trees stored, including those not saved yet
+   */
+  public int size() {
+    int size = mPendingRecords.size();
+    for (Long fingerprint : mRecordOffsets.keySet()) {
+      if (!mPendingRecords.containsKey(fingerprint)) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @return the number of trees hydrated
+   */
+  public long getHitCount() {
+    return mHitCount;
+  }
+
+  /**
+   * @return the number of trees that couldn't be hydrated, because no identical tree was stored or
+   *         because its measure results were different
+   */
+  public long getMissCount() {
+    return mMissCount;
+  }
+
+  private static void collectNodes(CSSNode node, List<CSSNode> nodes) {
+    nodes.add(node);
+    for (int i = 0; i < node.getChildCount(); i++) {
+      collectNodes(node.getChildAt(i), nodes);
+    }
+  }
+
+  private static @Nullable Object getMeasureKey(CSSNode node) {
+    CSSNode.MeasureFunction measureFunction = node.getMeasureFunction();
+    return measureFunction instanceof CSSNode.KeyedMeasureFunction
+        ? ((CSSNode.KeyedMeasureFunction) measureFunction).getMeasureKey(node)
+        : null;
+  }
+
+  /**
+   * Stores the layouts of the tree rooted at the given node, which must have been laid out, until
+   * {@link #save} writes them to the file. Replaces the layouts of an identical tree.
+   *
+   * @return whether the layouts were stored, which they aren't if some node of the tree hasn't
+   *         been laid out since it last changed
+   */
+  public boolean put(CSSNode root) {
+    List<CSSNode> nodes = new ArrayList<>();
+    collectNodes(root, nodes);
+    int length = 0;
+    for (CSSNode node : nodes) {
+      if (node.isDirty() || node.layoutCache.getCurrent() == null) {
+        return false;
+      }
+      length += NODE_SIZE;
+      if (node.isMeasureDefined()) {
+        length += MEASURE_SIZE * node.getMeasureCache().size();
+      }
+    }
+
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+    long fingerprint = root.getSubtreeFingerprint();
+    record.putLong(fingerprint);
+    record.putInt(nodes.size());
+    record.putInt(length);
+    for (CSSNode node : nodes) {
+      CachedCSSLayout cachedLayout = Assertions.assertNotNull(node.layoutCache.getCurrent());
+      record.putFloat(cachedLayout.requestedWidth);
+      record.putFloat(cachedLayout.requestedHeight);
+      record.putFloat(cachedLayout.parentMaxWidth);
+      putLayout(record, cachedLayout);
+      putLayout(record, node.layout);
+      record.putInt(node.lineIndex);
+
+      Object measureKey = getMeasureKey(node);
+      if (!node.isMeasureDefined()) {
+        record.put(NOT_MEASURED);
+        record.putInt(0);
+        record.put((byte) 0);
+        continue;
+      }
+      record.put(measureKey != null ? MEASURED_WITH_KEY : MEASURED);
+      record.putInt(measureKey != null ? measureKey.hashCode() : 0);
+      MeasureCache measureCache = node.getMeasureCache();
+      record.put((byte) measureCache.size());
+      for (int i = 0; i < measureCache.size(); i++) {
+        record.putFloat(measureCache.getWidth(i));
+        record.putFloat(measureCache.getMeasuredWidth(i));
+        record.putFloat(measureCache.getMeasuredHeight(i));
+      }
+    }
+    mPendingRecords.put(fingerprint, record.array());
+    return true;
+  }
+
+  private static void putLayout(ByteBuffer buffer, CSSLayout layout) {
+    for (int i = 0; i < 4; i++) {
+      buffer.putFloat(layout.position[i]);
+    }
+    buffer.putFloat(layout.dimensions[CSSLayout.DIMENSION_WIDTH]);
+    buffer.putFloat(layout.dimensions[CSSLayout.DIMENSION_HEIGHT]);
+    buffer.put((byte) layout.direction.ordinal());
+  }
+
+  private static void getLayout(ByteBuffer buffer, CSSLayout layout) {
+    for (int i = 0; i < 4; i++) {
+      layout.position[i] = buffer.getFloat();
+    }
+    layout.dimensions[CSSLayout.DIMENSION_WIDTH] = buffer.getFloat();
+    layout.dimensions[CSSLayout.DIMENSION_HEIGHT] = buffer.getFloat();
+    layout.direction = CSSDirection.values()[buffer.get()];
+  }
+
+  private @Nullable ByteBuffer findRecord(long fingerprint) {
+    byte[] pendingRecord = mPendingRecords.get(fingerprint);
+    if (pendingRecord != null) {
+      return ByteBuffer.wrap(pendingRecord);
+    }
+    Integer offset = mRecordOffsets.get(fingerprint);
+    if (offset == null || mBuffer == null) {
+      return null;
+    }
+    ByteBuffer record = mBuffer.duplicate();
+    record.position(offset);
+    return record;
+  }
+
+  /**
+   * Fills the caches of the nodes of the tree rooted at the given node with the layouts stored for
+   * an identical tree, so that the next layout of the tree reuses them.
+   *
+   * @param layoutContext the context to measure nodes with, to check that their measure functions
+   *                      return the stored results
+   * @return whether the tree was hydrated
+   */
+  public boolean hydrate(CSSLayoutContext layoutContext, CSSNode root) {
+    ByteBuffer record = findRecord(root.getSubtreeFingerprint());
+    if (record == null || record.getInt(record.position() + 8) != root.getSubtreeSize()) {
+      mMissCount++;
+      return false;
+    }
+    record.position(record.position() + RECORD_HEADER_SIZE);
+    List<CSSNode> nodes = new ArrayList<>();
+    collectNodes(root, nodes);
+
+    // Check all the measure results before changing any node
+    int[] nodeOffsets = new int[nodes.size()];
+    MeasureOutput expected = new MeasureOutput();
+    for (int i = 0; i < nodes.size(); i++) {
+      CSSNode node = nodes.get(i);
+      nodeOffsets[i] = record.position();
+      record.position(record.position() + NODE_LAYOUTS_SIZE);
+      byte measureKind = record.get();
+      int keyHash = record.getInt();
+      int measureCount = record.get();
+      Object measureKey = getMeasureKey(node);
+      boolean matches;
+      if (!node.isMeasureDefined()) {
+        matches = measureKind == NOT_MEASURED;
+      } else if (measureKey != null) {
+        matches = measureKind == MEASURED_WITH_KEY && keyHash == measureKey.hashCode();
+        record.position(record.position() + MEASURE_SIZE * measureCount);
+      } else {
+        matches = measureKind == MEASURED;
+        for (int j = 0; j < measureCount && matches; j++) {
+          float width = record.getFloat();
+          expected.width = record.getFloat();
+          expected.height = record.getFloat();
+          MeasureOutput measureOutput = node.measure(layoutContext, width);
+          matches = FloatUtil.floatsEqual(measureOutput.width, expected.width) &&
+              FloatUtil.floatsEqual(measureOutput.height, expected.height);
+        }
+      }
+      if (!matches) {
+        mMissCount++;
+        return false;
+      }
+    }
+
+    // Children first, so that their cached layouts are the current ones when their parent's
+    // layout is cached
+    for (int i = nodes.size() - 1; i >= 0; i--) {
+      CSSNode node = nodes.get(i);
+      record.position(nodeOffsets[i]);
+      float requestedWidth = record.getFloat();
+      float requestedHeight = record.getFloat();
+      float parentMaxWidth = record.getFloat();
+      LayoutCache layoutCache = node.layoutCache;
+      layoutCache.clear();
+      int index = layoutCache.start(requestedWidth, requestedHeight, parentMaxWidth);
+      getLayout(record, node.layout);
+      // Like after a layout whose positions the parents may have changed since
+      layoutCache.finish(node, index, CSSLayoutContext.NO_TOP_LEVEL_LAYOUT);
+      getLayout(record, node.layout);
+      node.lineIndex = record.getInt();
+
+      byte measureKind = record.get();
+      record.getInt();
+      int measureCount = record.get();
+      if (measureKind == MEASURED_WITH_KEY) {
+        MeasureCache measureCache = node.getMeasureCache();
+        for (int j = 0; j < measureCount; j++) {
+          float width = record.getFloat();
+          expected.width = record.getFloat();
+          expected.height = record.getFloat();
+          measureCache.put(width, expected);
+        }
+      }
+      node.markHasNewLayout(layoutContext);
+    }
+    mHitCount++;
+    return true;
+  }
+
+  /**
+   * Writes the trees stored so far to the file, along with those it already had that weren't
+   * replaced. The file is written next to the old one and then moved over it, so that a crash
+   * while saving leaves the old file.
+   */
+  public void save() throws IOException {
+    int size = HEADER_SIZE;
+    List<ByteBuffer> records = new ArrayList<>();
+    if (mBuffer != null) {
+      for (Map.Entry<Long, Integer> entry : mRecordOffsets.entrySet()) {
+        if (mPendingRecords.containsKey(entry.getKey())) {
+          continue;
+        }
+        int offset = entry.getValue();
+        ByteBuffer record = mBuffer.duplicate();
+        record.position(offset);
+        record.limit(offset + RECORD_HEADER_SIZE + mBuffer.getInt(offset + 12));
+        records.add(record);
+      }
+    }
+    for (byte[] pendingRecord : mPendingRecords.values()) {
+      records.add(ByteBuffer.wrap(pendingRecord));
+    }
+    for (ByteBuffer record : records) {
+      size += record.remaining();
+    }
+
+    File tempFile = new File(mFile.getPath() + ".tmp");
+    try (RandomAccessFile file = new RandomAccessFile(tempFile, "rw")) {
+      file.setLength(size);
+      MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.putInt(records.size());
+      for (ByteBuffer record : records) {
+        buffer.put(record);
+      }
+      buffer.force();
+    }
+    Files.move(
+        tempFile.toPath(),
+        mFile.toPath(),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    mPendingRecords.clear();
+    map();
+  }
+}
@@ -0,0 +1,277 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.util.ArrayDeque;
+
+/**
+ * Generates random node trees, in the spirit of the generator of Layout-random-test.js. The same
+ * seed and {@link Options} always produce the same tree, which makes the generator suitable to
+ * build large reproducible benchmark corpora and to compare layout engine variants on the same
+ * inputs.
+ */
+public class RandomTreeGenerator {
+
+  /**
+   * Knobs of the generator. Ratios are the probability, between 0 and 1, for each generated node
+   * to have the corresponding property.
+   */
+  public static class Options {
+
+    /**
+     * Depth of the deepest nodes, the root being at depth 0.
+     */
+    public int maxDepth = 8;
+
+    /**
+     * Hard limit on the number of nodes of the tree. Nodes are generated breadth first, so
+     * limiting the number of nodes cuts the deepest levels rather than the last subtrees.
+     */
+    public int maxNodes = 1000;
+
+    /**
+     * A node keeps getting new children, up to {@link #maxChildren}, as long as a random number
+     * is lower than this chance. 0.4 (the JS generator's value) gives small trees, values close
+     * to 1 give large fan-outs.
+     */
+    public float childChance = 0.4f;
+    public int maxChildren = 20;
+
+    /**
+     * Chance for each of the dimensions, positions, margins, paddings and borders to be set.
+     */
+    public float styleRatio = 0.5f;
+
+    public float flexRatio = 0.5f;
+    public float wrapRatio = 0.25f;
+    public float absoluteRatio = 0.25f;
+    public float measureRatio = 0.2f;
+
+    /**
+     * Chance for each of the min and max width and height to be set.
+     */
+    public float minMaxRatio = 0.5f;
+
+    /**
+     * Whether dimensions, min and max dimensions, paddings and borders can be negative, like in
+     * the JS generator. Such values are invalid CSS: the C and JS engines ignore them but the Java
+     * engine doesn't, so this must be false to compare the layouts of the Java engine with them.
+     */
+    public boolean negativeSizes = true;
+  }
+
+  /**
+   * Measure function behaving like a line of text of the given width, wrapping into several lines
+   * when measured with a smaller width.
+   */
+  public static class TextMeasureFunction implements CSSNode.MonotonicMeasureFunction {
+
+    private final float mTextWidth;
+    private final float mLineHeight;
+
+    public TextMeasureFunction(float textWidth, float lineHeight) {
+      mTextWidth = textWidth;
+      mLineHeight = lineHeight;
+    }
+
+    public float getTextWidth() {
+      return mTextWidth;
+    }
+
+    public float getLineHeight() {
+      return mLineHeight;
+    }
+
+    @Override
+    public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+      if (CSSConstants.isUndefined(width) || width >= mTextWidth) {
+        measureOutput.width = mTextWidth;
+        measureOutput.height = mLineHeight;
+      } else {
+        float clampedWidth = Math.max(width, 1);
+        measureOutput.width = clampedWidth;
+        measureOutput.height = mLineHeight * (float) Math.ceil(mTextWidth / clampedWidth);
+      }
+    }
+  }
+
+  private static final CSSJustify[] JUSTIFY_VALUES = CSSJustify.values();
+  private static final CSSAlign[] ALIGN_VALUES = {
+      CSSAlign.FLEX_START,
+      CSSAlign.CENTER,
+      CSSAlign.FLEX_END,
+      CSSAlign.STRETCH,
+  };
+
+  private final Options mOptions;
+  private long mState;
+
+  public RandomTreeGenerator(long seed) {
+    this(seed, new Options());
+  }
+
+  public RandomTreeGenerator(long seed, Options options) {
+    mState = seed & 0x7fffffffL;
+    mOptions = options;
+  }
+
+  /**
+   * Generates a new tree. Calling this again generates a different tree, continuing the random
+   * sequence of this generator.
+   */
+  public CSSNode generate() {
+    CSSNode root = generateNode(false);
+    int nodeCount = 1;
+
+    ArrayDeque<CSSNode> parents = new ArrayDeque<>();
+    ArrayDeque<Integer> depths = new ArrayDeque<>();
+    parents.add(root);
+    depths.add(0);
+    while (!parents.isEmpty()) {
+      CSSNode parent = parents.poll();
+      int depth = depths.poll();
+      if (depth >= mOptions.maxDepth || parent.isMeasureDefined()) {
+        continue;
+      }
+      while (nodeCount < mOptions.maxNodes &&
+          parent.getChildCount() < mOptions.maxChildren &&
+          nextFloat() < mOptions.childChance) {
+        CSSNode child = generateNode(true);
+        parent.addChildAt(child, parent.getChildCount());
+        parents.add(child);
+        depths.add(depth + 1);
+        nodeCount++;
+      }
+    }
+    return root;
+  }
+
+  /**
+   * Returns a random number between 0 and 1, using the same linear congruential generator as the
+   * JS generator.
+   */
+  /*package*/ float nextFloat() {
+    mState = (1103515245L * mState + 12345L) % 0x80000000L;
+    return (float) ((double) mState / (0x80000000L - 1));
+  }
+
+  private boolean nextChance(float chance) {
+    return nextFloat() < chance;
+  }
+
+  private float nextValue(float min, float max) {
+    return (float) Math.floor(nextFloat() * (max - min)) + min;
+  }
+
+  private CSSNode generateNode(boolean canBePositioned) {
+    CSSNode node = new CSSNode();
+    CSSStyle style = node.style;
+    float styleRatio = mOptions.styleRatio;
+
+    if (nextChance(styleRatio)) {
+      node.setStyleWidth(nextValue(minSize(-100), 1000));
+    }
+    if (nextChance(styleRatio)) {
+      node.setStyleHeight(nextValue(minSize(-100), 1000));
+    }
+    if (nextChance(mOptions.minMaxRatio)) {
+      style.minWidth = nextValue(minSize(-100), 1000);
+    }
+    if (nextChance(mOptions.minMaxRatio)) {
+      style.minHeight = nextValue(minSize(-100), 1000);
+    }
+    if (nextChance(mOptions.minMaxRatio)) {
+      style.maxWidth = nextValue(minSize(-100), 1000);
+    }
+    if (nextChance(mOptions.minMaxRatio)) {
+      style.maxHeight = nextValue(minSize(-100), 1000);
+    }
+    if (nextChance(styleRatio)) {
+      node.setPositionTop(nextValue(-10, 10));
+    }
+    if (nextChance(styleRatio)) {
+      node.setPositionLeft(nextValue(-10, 10));
+    }
+
+    generateSpacing(style.margin, -10, 20);
+    generateSpacing(style.padding, minSize(-10), 20);
+    generateSpacing(style.border, minSize(-4), 4);
+
+    if (nextChance(styleRatio)) {
+      node.setFlexDirection(nextChance(0.5f) ? CSSFlexDirection.ROW : CSSFlexDirection.COLUMN);
+    }
+    if (nextChance(styleRatio)) {
+      node.setJustifyContent(JUSTIFY_VALUES[nextIndex(JUSTIFY_VALUES.length)]);
+    }
+    CSSAlign alignItems = nextChance(styleRatio) ? nextAlign() : null;
+    if (nextChance(styleRatio)) {
+      style.alignContent = nextAlign();
+    }
+    if (nextChance(mOptions.wrapRatio)) {
+      node.setWrap(CSSWrap.WRAP);
+    }
+
+    boolean isText = nextChance(mOptions.measureRatio);
+    if (isText) {
+      node.setMeasureFunction(new TextMeasureFunction(nextValue(10, 400), nextValue(10, 30)));
+    } else if (alignItems != null) {
+      // align-items: stretch on a text node makes it wrap in a different way
+      node.setAlignItems(alignItems);
+    }
+
+    // Like the JS generator, don't position or flex the root since it has no parent to do so in
+    if (canBePositioned) {
+      if (nextChance(mOptions.flexRatio)) {
+        float flex = nextValue(-10, 10);
+        if (flex != 0) {
+          node.setFlex(flex);
+        }
+      }
+      if (nextChance(styleRatio)) {
+        node.setAlignSelf(nextAlign());
+      }
+      // Text that is position: absolute behaves very strangely
+      if (!isText && nextChance(mOptions.absoluteRatio)) {
+        node.setPositionType(CSSPositionType.ABSOLUTE);
+      }
+    }
+    return node;
+  }
+
+  private float minSize(float min) {
+    return mOptions.negativeSizes ? min : 0;
+  }
+
+  private CSSAlign nextAlign() {
+    return ALIGN_VALUES[nextIndex(ALIGN_VALUES.length)];
+  }
+
+  private int nextIndex(int length) {
+    return Math.min((int) (nextFloat() * length), length - 1);
+  }
+
+  private void generateSpacing(Spacing spacing, float min, float max) {
+    float styleRatio = mOptions.styleRatio;
+    if (nextChance(styleRatio)) {
+      spacing.set(Spacing.ALL, nextValue(min, max));
+    }
+    if (nextChance(styleRatio)) {
+      spacing.set(Spacing.LEFT, nextValue(min, max));
+    }
+    if (nextChance(styleRatio)) {
+      spacing.set(Spacing.TOP, nextValue(min, max));
+    }
+    if (nextChance(styleRatio)) {
+      spacing.set(Spacing.RIGHT, nextValue(min, max));
+    }
+    if (nextChance(styleRatio)) {
+      spacing.set(Spacing.BOTTOM, nextValue(min, max));
+    }
+  }
+}
@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+/**
+ * Why {@link LayoutEngine#needsRelayout} could not reuse a cached layout of a node. When several
+ * reasons apply, the first one in declaration order is reported.
+ */
+public enum RelayoutReason {
+  /**
+   * The node, or one of its descendants, was changed since its last layout.
+   */
+  DIRTY,
+
+  /**
+   * The parent gave the node a different width than last time, e.g. when stretching it.
+   */
+  REQUESTED_WIDTH,
+
+  /**
+   * The parent gave the node a different height than last time, e.g. when stretching it.
+   */
+  REQUESTED_HEIGHT,
+
+  /**
+   * The maximum width available to the node changed.
+   */
+  PARENT_MAX_WIDTH,
+
+  /**
+   * A layout of the node was cached for these constraints, but a layout of one of its descendants
+   * it was computed with has since been evicted from the cache of that descendant.
+   */
+  EVICTED,
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import javax.annotation.Nullable;
+
+/**
+ * Values the layout engine derives from the {@link CSSStyle} of a node, kept between layouts so
+ * that they are only resolved again when what they depend on changed.
+ *
+ * The direction and axes depend on the direction and flex direction of the node and on the
+ * direction of its parent, which they are stored with. The margins, paddings and borders of the
+ * edges of each axis are resolved by {@link Spacing} itself.
+ */
+/*package*/ class ResolvedStyle {
+
+  /*package*/ CSSDirection direction = CSSDirection.LTR;
+  /*package*/ int mainAxis;
+  /*package*/ int crossAxis;
+  /*package*/ int rowAxis;
+
+  private @Nullable CSSDirection mStyleDirection;
+  private @Nullable CSSFlexDirection mStyleFlexDirection;
+  private @Nullable CSSDirection mParentDirection;
+
+  /**
+   * @return whether the direction and axes were resolved for the given style and parent direction
+   */
+  /*package*/ boolean isDirectionResolved(CSSStyle style, @Nullable CSSDirection parentDirection) {
+    return mStyleFlexDirection == style.flexDirection &&
+        mStyleDirection == style.direction &&
+        mParentDirection == parentDirection;
+  }
+
+  /*package*/ void onDirectionResolved(CSSStyle style, @Nullable CSSDirection parentDirection) {
+    mStyleDirection = style.direction;
+    mStyleFlexDirection = style.flexDirection;
+    mParentDirection = parentDirection;
+  }
+}
@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+/**
+ * Results of {@link CSSNode.KeyedMeasureFunction}s shared between nodes, trees and
+ * {@link CSSLayoutContext}s, keyed on the measure key of the node and the width it was measured
+ * at. Enabled with {@link CSSLayoutContext#setSharedMeasureCache}, it is only looked up when the
+ * node's own cache of its last measures doesn't have the result.
+ *
+ * Unlike the rest of the engine, it can be used from several threads at once. The entries are
+ * split into stripes, each with its own lock, so that threads measuring different keys rarely
+ * wait on each other. Within a stripe, a key and width can be stored in one of a set of
+ * {@link #WAYS} entries, evicting the least recently used one.
+ */
+public class SharedMeasureCache {
+
+  /**
+   * Number of entries a given key and width can be stored in.
+   */
+  public static final int WAYS = 4;
+
+  private static class Stripe {
+
+    private final Object[] mKeys;
+    private final int[] mWidths;
+    private final float[] mMeasuredWidths;
+    private final float[] mMeasuredHeights;
+    private final long[] mLastUsed;
+    private long mClock;
+
+    private long mHitCount;
+    private long mMissCount;
+    private long mEvictionCount;
+
+    private Stripe(int entryCount) {
+      mKeys = new Object[entryCount];
+      mWidths = new int[entryCount];
+      mMeasuredWidths = new float[entryCount];
+      mMeasuredHeights = new float[entryCount];
+      mLastUsed = new long[entryCount];
+    }
+  }
+
+  private final Stripe[] mStripes;
+  private final int mStripeMask;
+  private final int mSetMask;
+
+  /**
+   * @param maxEntries maximum number of results stored, rounded up so that each stripe holds a
+   *                   power of two of sets of {@link #WAYS} entries
+   * @param stripeCount number of independently locked parts of the cache, rounded up to a power
+   *                    of two. About the number of threads measuring at once is a good start.
+   */
+  public SharedMeasureCache(int maxEntries, int stripeCount) {
+    int stripes = 1;
+    while (stripes < stripeCount) {
+      stripes *= 2;
+    }
+    int setCount = 1;
+    while (stripes * setCount * WAYS < maxEntries) {
+      setCount *= 2;
+    }
+    mStripes = new Stripe[stripes];
+    for (int i = 0; i < stripes; i++) {
+      mStripes[i] = new Stripe(setCount * WAYS);
+    }
+    mStripeMask = stripes - 1;
+    mSetMask = setCount - 1;
+  }
+
+  private static int hash(Object key, int widthBits) {
+    int hash = key.hashCode() * 31 + widthBits;
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    return hash ^ (hash >>> 16);
+  }
+
+  private Stripe getStripe(int hash) {
+    return mStripes[hash & mStripeMask];
+  }
+
+  private int getSetStart(int hash) {
+    return ((hash >>> 16) & mSetMask) * WAYS;
+  }
+
+  /**
+   * Fills the given output with the result of a measure of the given key at the given width, if
+   * there is one.
+   *
+   * @return whether the result was found
+   */
+  /*package*/ boolean get(Object key, float width, MeasureOutput measureOutput) {
+    int widthBits = Float.floatToIntBits(width);
+    int hash = hash(key, widthBits);
+    Stripe stripe = getStripe(hash);
+    int start = getSetStart(hash);
+    synchronized (stripe) {
+      for (int i = start; i < start + WAYS; i++) {
+        if (stripe.mWidths[i] == widthBits && key.equals(stripe.mKeys[i])) {
+          measureOutput.width = stripe.mMeasuredWidths[i];
+          measureOutput.height = stripe.mMeasuredHeights[i];
+          stripe.mLastUsed[i] = ++stripe.mClock;
+          stripe.mHitCount++;
+          return true;
+        }
+      }
+      stripe.mMissCount++;
+      return false;
+    }
+  }
+
+  /*package*/ void put(Object key, float width, MeasureOutput measureOutput) {
+    int widthBits = Float.floatToIntBits(width);
+    int hash = hash(key, widthBits);
+    Stripe stripe = getStripe(hash);
+    int start = getSetStart(hash);
+    synchronized (stripe) {
+      int index = -1;
+      for (int i = start; i < start + WAYS; i++) {
+        Object storedKey = stripe.mKeys[i];
+        if (storedKey == null || (stripe.mWidths[i] == widthBits && key.equals(storedKey))) {
+          index = i;
+          break;
+        } else if (index < 0 || stripe.mLastUsed[i] < stripe.mLastUsed[index]) {
+          index = i;
+        }
+      }
+      if (stripe.mKeys[index] != null &&
+          (stripe.mWidths[index] != widthBits || !key.equals(stripe.mKeys[index]))) {
+        stripe.mEvictionCount++;
+      }
+      stripe.mKeys[index] = key;
+      stripe.mWidths[index] = widthBits;
+      stripe.mMeasuredWidths[index] = measureOutput.width;
+      stripe.mMeasuredHeights[index] = measureOutput.height;
+      stripe.mLastUsed[index] = ++stripe.mClock;
+    }
+  }
+
+  /**
+   * @return the number of measures found in the cache
+   */
+  public long getHitCount() {
+    long hitCount = 0;
+    for (Stripe stripe : mStripes) {
+      synchronized (stripe) {
+        hitCount += stripe.mHitCount;
+      }
+    }
+    return hitCount;
+  }
+
+  /**
+   * @return the number of measures not found in the cache, which the measure function was called
+   *         for
+   */
+  public long getMissCount() {
+    long missCount = 0;
+    for (Stripe stripe : mStripes) {
+      synchronized (stripe) {
+        missCount += stripe.mMissCount;
+      }
+    }
+    return missCount;
+  }
+
+  /**
+   * @return the number of results replaced by the result of another measure
+   */
+  public long getEvictionCount() {
+    long evictionCount = 0;
+    for (Stripe stripe : mStripes) {
+      synchronized (stripe) {
+        evictionCount += stripe.mEvictionCount;
+      }
+    }
+    return evictionCount;
+  }
+
+  /**
+   * @return the number of results stored
+   */
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : mStripes) {
+      synchronized (stripe) {
+        for (Object key : stripe.mKeys) {
+          if (key != null) {
+            size++;
+          }
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Forgets all the results, e.g. once fonts changed, but not the counters.
+   */
+  public void clear() {
+    for (Stripe stripe : mStripes) {
+      synchronized (stripe) {
+        for (int i = 0; i < stripe.mKeys.length; i++) {
+          stripe.mKeys[i] = null;
+        }
+      }
+    }
+  }
+}
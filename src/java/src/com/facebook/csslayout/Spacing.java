@@ -8,8 +8,6 @@
  */
 package com.facebook.csslayout;
 
-import javax.annotation.Nullable;
-
 /**
  * Class representing CSS spacing (padding, margin, and borders). This is mostly necessary to
  * properly implement interactions and updates for properties like margin, marginLeft, and
@@ -67,10 +65,29 @@ public class Spacing {
     256, /*ALL*/
   };
 
+  // Fields of the fingerprint of the default values, after those of the values set
+  private static final int DEFAULT_FIELD_OFFSET = ALL + 1;
+
+  private static final int COLUMN = CSSFlexDirection.COLUMN.ordinal();
+  private static final int COLUMN_REVERSE = CSSFlexDirection.COLUMN_REVERSE.ordinal();
+  private static final int ROW = CSSFlexDirection.ROW.ordinal();
+  private static final int ROW_REVERSE = CSSFlexDirection.ROW_REVERSE.ordinal();
+
   private final float[] mSpacing = newFullSpacingArray();
-  @Nullable private float[] mDefaultSpacing = null;
+  private final float[] mDefaultSpacing = newSpacingResultArray();
   private int mValueFlags = 0;
   private boolean mHasAliasesSet;
+  private long mFingerprint;
+
+  /**
+   * The spacing of the leading and trailing edges of each axis, indexed by the ordinal of its
+   * {@link CSSFlexDirection} once resolved for the direction of the node. Start and end take
+   * precedence on rows, so the values of {@link CSSFlexDirection#ROW} and
+   * {@link CSSFlexDirection#ROW_REVERSE} are those of left-to-right and right-to-left layouts.
+   * These are what the layout engine reads, and are updated whenever a value changes.
+   */
+  /*package*/ final float[] resolvedLeading = new float[4];
+  /*package*/ final float[] resolvedTrailing = new float[4];
 
   /**
    * Set a spacing value.
@@ -83,6 +100,7 @@ public class Spacing {
    */
   public boolean set(int spacingType, float value) {
     if (!FloatUtil.floatsEqual(mSpacing[spacingType], value)) {
+      mFingerprint ^= Fingerprint.change(spacingType, mSpacing[spacingType], value);
       mSpacing[spacingType] = value;
 
       if (CSSConstants.isUndefined(value)) {
@@ -96,6 +114,7 @@ public class Spacing {
           (mValueFlags & sFlagsMap[VERTICAL]) != 0 ||
           (mValueFlags & sFlagsMap[HORIZONTAL]) != 0;
 
+      resolve();
       return true;
     }
     return false;
@@ -110,11 +129,11 @@ public class Spacing {
    * @return
    */
   public boolean setDefault(int spacingType, float value) {
-    if (mDefaultSpacing == null) {
-      mDefaultSpacing = newSpacingResultArray();
-    }
     if (!FloatUtil.floatsEqual(mDefaultSpacing[spacingType], value)) {
+      mFingerprint ^=
+          Fingerprint.change(DEFAULT_FIELD_OFFSET + spacingType, mDefaultSpacing[spacingType], value);
       mDefaultSpacing[spacingType] = value;
+      resolve();
       return true;
     }
     return false;
@@ -126,9 +145,7 @@ public class Spacing {
    * @param spacingType one of {@link #LEFT}, {@link #TOP}, {@link #RIGHT}, {@link #BOTTOM}
    */
   public float get(int spacingType) {
-    float defaultValue = (mDefaultSpacing != null)
-        ? mDefaultSpacing[spacingType]
-        : (spacingType == START || spacingType == END ? CSSConstants.UNDEFINED : 0);
+    float defaultValue = mDefaultSpacing[spacingType];
 
     if (mValueFlags == 0) {
       return defaultValue;
@@ -162,17 +179,42 @@ public class Spacing {
   }
 
   /**
-   * Try to get start value and fallback to given type if not defined. This is used privately
-   * by the layout engine as a more efficient way to fetch direction-aware values by
-   * avoid extra method invocations.
+   * Get the default value (that was set using {@link #setDefault(int, float)}) for a direction.
    */
-  float getWithFallback(int spacingType, int fallbackType) {
+  /*package*/ float getDefault(int spacingType) {
+    return mDefaultSpacing[spacingType];
+  }
+
+  /**
+   * @return a hash of the values and default values set, which two spacings have in common if they
+   *         have the same values, see {@link CSSStyle#getFingerprint}
+   */
+  /*package*/ long getFingerprint() {
+    return mFingerprint;
+  }
+
+  /**
+   * Try to get start value and fallback to given type if not defined. This is used to resolve
+   * the direction-aware values of {@link #resolvedLeading} and {@link #resolvedTrailing}.
+   */
+  private float getWithFallback(int spacingType, int fallbackType) {
     return
         (mValueFlags & sFlagsMap[spacingType]) != 0
             ? mSpacing[spacingType]
             : get(fallbackType);
   }
 
+  private void resolve() {
+    resolvedLeading[COLUMN] = get(TOP);
+    resolvedTrailing[COLUMN] = get(BOTTOM);
+    resolvedLeading[COLUMN_REVERSE] = get(BOTTOM);
+    resolvedTrailing[COLUMN_REVERSE] = get(TOP);
+    resolvedLeading[ROW] = getWithFallback(START, LEFT);
+    resolvedTrailing[ROW] = getWithFallback(END, RIGHT);
+    resolvedLeading[ROW_REVERSE] = getWithFallback(START, RIGHT);
+    resolvedTrailing[ROW_REVERSE] = getWithFallback(END, LEFT);
+  }
+
   private static float[] newFullSpacingArray() {
     return new float[] {
         CSSConstants.UNDEFINED,
@@ -0,0 +1,513 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import javax.annotation.Nullable;
+
+import com.facebook.infer.annotation.Assertions;
+
+/**
+ * Layouts of subtrees shared between structurally identical subtrees, such as the rows of a list.
+ * When enabled with {@link CSSLayoutContext#setSubtreeMemo}, the layout of a node with children is
+ * stored under the {@link CSSNode#getSubtreeFingerprint} of the node and the constraints it was
+ * laid out with. Another node laid out with the same hash gets these layouts copied into its
+ * subtree instead of being laid out.
+ *
+ * The measure functions of the nodes aren't part of the hash since they can't be compared, so the
+ * calls made to them while laying out the first subtree are stored as well. They are made again
+ * on the matching nodes of the other subtree, whose layout is only reused if they return the same
+ * results. Subtrees with the same hash that measure differently get separate entries. A layout is
+ * not stored if a node of the subtree with a measure function in its own subtree reused its
+ * cached layout, as the results of its measure functions wouldn't be known.
+ *
+ * Entries are never invalidated: a change to a subtree changes its fingerprint. The memo holds up
+ * to a fixed number of entries, evicting the least recently used one of a set of {@link #WAYS}
+ * entries sharing the same hash bits. Like {@link CSSLayoutContext}, an instance must not be shared
+ * between threads.
+ */
+public class SubtreeMemo {
+
+  /**
+   * Number of entries a given hash can be stored in.
+   */
+  public static final int WAYS = 4;
+
+  private static class Entry {
+
+    private boolean mValid;
+    private long mKey;
+    private long mSubtreeFingerprint;
+    private float mRequestedWidth;
+    private float mRequestedHeight;
+    private float mParentMaxWidth;
+    private @Nullable CSSDirection mParentDirection;
+    private long mLastUsed;
+
+    private int mNodeCount;
+    private CSSLayout[] mLayouts = new CSSLayout[0];
+    // layout of each node as it was cached, before its parent positioned it
+    private CSSLayout[] mCachedLayouts = new CSSLayout[0];
+    private int[] mLineIndices = new int[0];
+    // requested width, requested height and parent max width of the layout of each node
+    private float[] mConstraints = new float[0];
+
+    private int mMeasureCount;
+    private int[] mMeasureNodes = new int[0];
+    // width, measured width and measured height of each measure
+    private float[] mMeasureValues = new float[0];
+
+    private void ensureCapacity(int nodeCount, int measureCount) {
+      if (mLayouts.length < nodeCount) {
+        CSSLayout[] layouts = new CSSLayout[nodeCount];
+        System.arraycopy(mLayouts, 0, layouts, 0, mLayouts.length);
+        for (int i = mLayouts.length; i < nodeCount; i++) {
+          layouts[i] = new CSSLayout();
+        }
+        mLayouts = layouts;
+        CSSLayout[] cachedLayouts = new CSSLayout[nodeCount];
+        System.arraycopy(mCachedLayouts, 0, cachedLayouts, 0, mCachedLayouts.length);
+        for (int i = mCachedLayouts.length; i < nodeCount; i++) {
+          cachedLayouts[i] = new CSSLayout();
+        }
+        mCachedLayouts = cachedLayouts;
+        mLineIndices = new int[nodeCount];
+        mConstraints = new float[3 * nodeCount];
+      }
+      if (mMeasureNodes.length < measureCount) {
+        mMeasureNodes = new int[measureCount];
+        mMeasureValues = new float[3 * measureCount];
+      }
+    }
+  }
+
+  /**
+   * The measures made while laying out a subtree, until it is stored.
+   */
+  private static class Recording {
+
+    private @Nullable CSSNode mRoot;
+    private final float[] mRootPosition = new float[4];
+    private boolean mTainted;
+    private int mMeasureCount;
+    private CSSNode[] mMeasureNodes = new CSSNode[4];
+    private float[] mMeasureValues = new float[12];
+
+    private void add(CSSNode node, float width, MeasureOutput measureOutput) {
+      if (mMeasureCount == mMeasureNodes.length) {
+        CSSNode[] measureNodes = new CSSNode[2 * mMeasureCount];
+        System.arraycopy(mMeasureNodes, 0, measureNodes, 0, mMeasureCount);
+        mMeasureNodes = measureNodes;
+        float[] measureValues = new float[6 * mMeasureCount];
+        System.arraycopy(mMeasureValues, 0, measureValues, 0, 3 * mMeasureCount);
+        mMeasureValues = measureValues;
+      }
+      mMeasureNodes[mMeasureCount] = node;
+      mMeasureValues[3 * mMeasureCount] = width;
+      mMeasureValues[3 * mMeasureCount + 1] = measureOutput.width;
+      mMeasureValues[3 * mMeasureCount + 2] = measureOutput.height;
+      mMeasureCount++;
+    }
+  }
+
+  private final Entry[] mEntries;
+  private final int mSetMask;
+  private final int mMaxSubtreeSize;
+  private long mClock;
+
+  private Recording[] mRecordings = new Recording[0];
+  private int mRecordingDepth;
+  private CSSNode[] mNodes = new CSSNode[16];
+
+  private long mHitCount;
+  private long mMissCount;
+  private long mStoreCount;
+  private long mEvictionCount;
+
+  /**
+   * @param maxEntries maximum number of layouts stored, rounded up to a power of two no smaller
+   *                   than {@link #WAYS}
+   * @param maxSubtreeSize maximum number of nodes of the subtrees whose layout is stored
+   */
+  public SubtreeMemo(int maxEntries, int maxSubtreeSize) {
+    int setCount = 1;
+    while (setCount * WAYS < maxEntries) {
+      setCount *= 2;
+    }
+    mEntries = new Entry[setCount * WAYS];
+    mSetMask = setCount - 1;
+    mMaxSubtreeSize = maxSubtreeSize;
+  }
+
+  /**
+   * @return the number of times a node reused a stored layout
+   */
+  public long getHitCount() {
+    return mHitCount;
+  }
+
+  /**
+   * @return the number of times no layout was stored for a node, or one was but the measure
+   *         functions of its subtree returned different results
+   */
+  public long getMissCount() {
+    return mMissCount;
+  }
+
+  public long getStoreCount() {
+    return mStoreCount;
+  }
+
+  /**
+   * @return the number of layouts replaced by the layout of another subtree
+   */
+  public long getEvictionCount() {
+    return mEvictionCount;
+  }
+
+  /**
+   * @return the number of layouts stored
+   */
+  public int size() {
+    int size = 0;
+    for (Entry entry : mEntries) {
+      if (entry != null && entry.mValid) {
+        size++;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Forgets all the stored layouts, but not the counters.
+   */
+  public void clear() {
+    for (Entry entry : mEntries) {
+      if (entry != null) {
+        entry.mValid = false;
+      }
+    }
+  }
+
+  private static long getKey(
+      long subtreeFingerprint,
+      float requestedWidth,
+      float requestedHeight,
+      float parentMaxWidth,
+      @Nullable CSSDirection parentDirection) {
+    long key = Fingerprint.mix(subtreeFingerprint, requestedWidth);
+    key = Fingerprint.mix(key, requestedHeight);
+    key = Fingerprint.mix(key, parentMaxWidth);
+    key = Fingerprint.mix(key, parentDirection == null ? -1 : parentDirection.ordinal());
+    return Fingerprint.finish(key);
+  }
+
+  private boolean isMemoizable(CSSNode node) {
+    return node.getChildCount() > 0 && node.getSubtreeSize() <= mMaxSubtreeSize;
+  }
+
+  private static boolean matches(
+      Entry entry,
+      long key,
+      long subtreeFingerprint,
+      float requestedWidth,
+      float requestedHeight,
+      float parentMaxWidth,
+      @Nullable CSSDirection parentDirection) {
+    return entry.mValid &&
+        entry.mKey == key &&
+        entry.mSubtreeFingerprint == subtreeFingerprint &&
+        FloatUtil.floatsEqual(entry.mRequestedWidth, requestedWidth) &&
+        FloatUtil.floatsEqual(entry.mRequestedHeight, requestedHeight) &&
+        FloatUtil.floatsEqual(entry.mParentMaxWidth, parentMaxWidth) &&
+        entry.mParentDirection == parentDirection;
+  }
+
+  /**
+   * @return whether the measure functions of the nodes in mNodes return the results stored in the
+   *         entry
+   */
+  private boolean measuresMatch(CSSLayoutContext layoutContext, Entry entry) {
+    for (int i = 0; i < entry.mMeasureCount; i++) {
+      MeasureOutput measureOutput = mNodes[entry.mMeasureNodes[i]].measure(
+          layoutContext,
+          entry.mMeasureValues[3 * i]);
+      if (!FloatUtil.floatsEqual(measureOutput.width, entry.mMeasureValues[3 * i + 1]) ||
+          !FloatUtil.floatsEqual(measureOutput.height, entry.mMeasureValues[3 * i + 2])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the entry to store the given key into, an unused one or the least recently used one of
+   *         its set. Entries already storing the key are kept, as the subtree they were stored for
+   *         measured differently.
+   */
+  private Entry getEntryToStore(long key) {
+    int set = (int) key & mSetMask;
+    int leastRecentlyUsed = -1;
+    for (int i = set * WAYS; i < (set + 1) * WAYS; i++) {
+      Entry entry = mEntries[i];
+      if (entry == null) {
+        entry = new Entry();
+        mEntries[i] = entry;
+        return entry;
+      } else if (!entry.mValid) {
+        return entry;
+      } else if (leastRecentlyUsed < 0 ||
+          entry.mLastUsed < mEntries[leastRecentlyUsed].mLastUsed) {
+        leastRecentlyUsed = i;
+      }
+    }
+    mEvictionCount++;
+    return mEntries[leastRecentlyUsed];
+  }
+
+  /**
+   * Collects the nodes of the subtree of the given node in depth first order into mNodes.
+   *
+   * @return the index following the last node collected
+   */
+  private int collectNodes(CSSNode node, int index) {
+    if (index == mNodes.length) {
+      CSSNode[] nodes = new CSSNode[2 * index];
+      System.arraycopy(mNodes, 0, nodes, 0, index);
+      mNodes = nodes;
+    }
+    mNodes[index++] = node;
+    for (int i = 0; i < node.getChildCount(); i++) {
+      index = collectNodes(node.getChildAt(i), index);
+    }
+    return index;
+  }
+
+  private void clearNodes(int nodeCount) {
+    for (int i = 0; i < nodeCount; i++) {
+      mNodes[i] = null;
+    }
+  }
+
+  /**
+   * Lays out the subtree of the node with the layouts stored for an identical subtree, if there
+   * are any and the measure functions of the subtree return the same results.
+   *
+   * @return whether the node was laid out
+   */
+  /*package*/ boolean restore(
+      CSSLayoutContext layoutContext,
+      CSSNode node,
+      float parentMaxWidth,
+      @Nullable CSSDirection parentDirection) {
+    if (!isMemoizable(node)) {
+      return false;
+    }
+    float requestedWidth = node.layout.dimensions[CSSLayout.DIMENSION_WIDTH];
+    float requestedHeight = node.layout.dimensions[CSSLayout.DIMENSION_HEIGHT];
+    long subtreeFingerprint = node.getSubtreeFingerprint();
+    long key = getKey(
+        subtreeFingerprint,
+        requestedWidth,
+        requestedHeight,
+        parentMaxWidth,
+        parentDirection);
+    int nodeCount = collectNodes(node, 0);
+    Entry entry = null;
+    int set = (int) key & mSetMask;
+    for (int i = set * WAYS; i < (set + 1) * WAYS && entry == null; i++) {
+      Entry candidate = mEntries[i];
+      if (candidate != null &&
+          matches(
+              candidate,
+              key,
+              subtreeFingerprint,
+              requestedWidth,
+              requestedHeight,
+              parentMaxWidth,
+              parentDirection) &&
+          candidate.mNodeCount == nodeCount &&
+          measuresMatch(layoutContext, candidate)) {
+        entry = candidate;
+      }
+    }
+    if (entry == null) {
+      clearNodes(nodeCount);
+      mMissCount++;
+      return false;
+    }
+
+    // Children first, so that their cached layouts are the current ones when their parent's
+    // layout is cached
+    for (int i = nodeCount - 1; i > 0; i--) {
+      CSSNode descendant = mNodes[i];
+      LayoutCache layoutCache = descendant.layoutCache;
+      if (descendant.isDirty()) {
+        layoutCache.clear();
+      }
+      int index = layoutCache.start(
+          entry.mConstraints[3 * i],
+          entry.mConstraints[3 * i + 1],
+          entry.mConstraints[3 * i + 2]);
+      descendant.layout.copy(entry.mCachedLayouts[i]);
+      layoutCache.finish(descendant, index, layoutContext.topLevelLayout);
+      descendant.layout.copy(entry.mLayouts[i]);
+      descendant.lineIndex = entry.mLineIndices[i];
+      descendant.markHasNewLayout(layoutContext);
+    }
+    CSSLayout rootLayout = entry.mLayouts[0];
+    for (int i = 0; i < 4; i++) {
+      node.layout.position[i] += rootLayout.position[i];
+    }
+    node.layout.dimensions[CSSLayout.DIMENSION_WIDTH] =
+        rootLayout.dimensions[CSSLayout.DIMENSION_WIDTH];
+    node.layout.dimensions[CSSLayout.DIMENSION_HEIGHT] =
+        rootLayout.dimensions[CSSLayout.DIMENSION_HEIGHT];
+    node.layout.direction = rootLayout.direction;
+
+    clearNodes(nodeCount);
+    entry.mLastUsed = ++mClock;
+    mHitCount++;
+    return true;
+  }
+
+  /**
+   * Starts recording the measures made while laying out the node, if its layout can be stored.
+   */
+  /*package*/ void startRecording(CSSNode node) {
+    if (!isMemoizable(node)) {
+      return;
+    }
+    if (mRecordingDepth == mRecordings.length) {
+      Recording[] recordings = new Recording[mRecordingDepth + 4];
+      System.arraycopy(mRecordings, 0, recordings, 0, mRecordingDepth);
+      for (int i = mRecordingDepth; i < recordings.length; i++) {
+        recordings[i] = new Recording();
+      }
+      mRecordings = recordings;
+    }
+    Recording recording = mRecordings[mRecordingDepth++];
+    recording.mRoot = node;
+    System.arraycopy(node.layout.position, 0, recording.mRootPosition, 0, 4);
+    recording.mTainted = false;
+    recording.mMeasureCount = 0;
+  }
+
+  /*package*/ void onMeasure(CSSNode node, float width, MeasureOutput measureOutput) {
+    for (int i = 0; i < mRecordingDepth; i++) {
+      mRecordings[i].add(node, width, measureOutput);
+    }
+  }
+
+  /**
+   * Called when the node reused its cached layout instead of being laid out.
+   */
+  /*package*/ void onCachedLayout(CSSNode node) {
+    if (node.hasMeasuredSubtree()) {
+      for (int i = 0; i < mRecordingDepth; i++) {
+        mRecordings[i].mTainted = true;
+      }
+    }
+  }
+
+  /**
+   * Stores the layout of the subtree of the node if it was recorded by {@link #startRecording}.
+   * Must be called once the layout of the node is cached in {@link CSSNode#layoutCache}.
+   */
+  /*package*/ void finishRecording(
+      CSSNode node,
+      float parentMaxWidth,
+      @Nullable CSSDirection parentDirection) {
+    if (mRecordingDepth == 0 || mRecordings[mRecordingDepth - 1].mRoot != node) {
+      return;
+    }
+    Recording recording = mRecordings[--mRecordingDepth];
+    recording.mRoot = null;
+    if (recording.mTainted) {
+      clearRecording(recording);
+      return;
+    }
+
+    int nodeCount = collectNodes(node, 0);
+    for (int i = 0; i < nodeCount; i++) {
+      if (mNodes[i].layoutCache.getCurrent() == null) {
+        // Its cached layout is what tells with which constraints to lay it out
+        clearNodes(nodeCount);
+        clearRecording(recording);
+        return;
+      }
+    }
+
+    CachedCSSLayout lastLayout = Assertions.assertNotNull(node.layoutCache.getCurrent());
+    float requestedWidth = lastLayout.requestedWidth;
+    float requestedHeight = lastLayout.requestedHeight;
+    long subtreeFingerprint = node.getSubtreeFingerprint();
+    long key = getKey(
+        subtreeFingerprint,
+        requestedWidth,
+        requestedHeight,
+        parentMaxWidth,
+        parentDirection);
+    Entry entry = getEntryToStore(key);
+    entry.ensureCapacity(nodeCount, recording.mMeasureCount);
+    entry.mValid = true;
+    entry.mKey = key;
+    entry.mSubtreeFingerprint = subtreeFingerprint;
+    entry.mRequestedWidth = requestedWidth;
+    entry.mRequestedHeight = requestedHeight;
+    entry.mParentMaxWidth = parentMaxWidth;
+    entry.mParentDirection = parentDirection;
+    entry.mLastUsed = ++mClock;
+    entry.mNodeCount = nodeCount;
+
+    // The node only offsets its own position, which its parent may have set already
+    entry.mLayouts[0].copy(node.layout);
+    for (int i = 0; i < 4; i++) {
+      entry.mLayouts[0].position[i] -= recording.mRootPosition[i];
+    }
+    for (int i = 1; i < nodeCount; i++) {
+      CSSNode descendant = mNodes[i];
+      CachedCSSLayout descendantLayout =
+          Assertions.assertNotNull(descendant.layoutCache.getCurrent());
+      entry.mLayouts[i].copy(descendant.layout);
+      entry.mCachedLayouts[i].copy(descendantLayout);
+      entry.mLineIndices[i] = descendant.lineIndex;
+      entry.mConstraints[3 * i] = descendantLayout.requestedWidth;
+      entry.mConstraints[3 * i + 1] = descendantLayout.requestedHeight;
+      entry.mConstraints[3 * i + 2] = descendantLayout.parentMaxWidth;
+    }
+
+    entry.mMeasureCount = recording.mMeasureCount;
+    for (int i = 0; i < recording.mMeasureCount; i++) {
+      entry.mMeasureNodes[i] = indexOf(recording.mMeasureNodes[i], nodeCount);
+      entry.mMeasureValues[3 * i] = recording.mMeasureValues[3 * i];
+      entry.mMeasureValues[3 * i + 1] = recording.mMeasureValues[3 * i + 1];
+      entry.mMeasureValues[3 * i + 2] = recording.mMeasureValues[3 * i + 2];
+    }
+
+    clearNodes(nodeCount);
+    clearRecording(recording);
+    mStoreCount++;
+  }
+
+  private int indexOf(CSSNode node, int nodeCount) {
+    for (int i = 0; i < nodeCount; i++) {
+      if (mNodes[i] == node) {
+        return i;
+      }
+    }
+    throw new IllegalStateException("Measured node isn't part of the recorded subtree");
+  }
+
+  private static void clearRecording(Recording recording) {
+    for (int i = 0; i < recording.mMeasureCount; i++) {
+      recording.mMeasureNodes[i] = null;
+    }
+    recording.mMeasureCount = 0;
+  }
+}
@@ -12,6 +12,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for {@link CSSNode}.
@@ -47,4 +48,68 @@ public class CSSNodeTest {
     parent1.addChildAt(child, 0);
     parent2.addChildAt(child, 0);
   }
+
+  @Test
+  public void testStyleFingerprintDependsOnValuesOnly() {
+    CSSNode node = new CSSNode();
+    CSSNode other = new CSSNode();
+    assertEquals(node.style.getFingerprint(), other.style.getFingerprint());
+
+    node.setFlex(1);
+    node.setMargin(Spacing.LEFT, 10);
+    node.setStyleWidth(100);
+    assertTrue(node.style.getFingerprint() != other.style.getFingerprint());
+
+    // Same values, set in another order and through other values
+    other.setStyleWidth(50);
+    other.setMargin(Spacing.LEFT, 10);
+    other.setStyleWidth(100);
+    other.setFlex(1);
+    assertEquals(node.style.getFingerprint(), other.style.getFingerprint());
+
+    node.setMargin(Spacing.LEFT, CSSConstants.UNDEFINED);
+    node.setPadding(Spacing.LEFT, 10);
+    assertTrue(node.style.getFingerprint() != other.style.getFingerprint());
+    node.setPadding(Spacing.LEFT, CSSConstants.UNDEFINED);
+    node.setMargin(Spacing.LEFT, 10);
+    assertEquals(node.style.getFingerprint(), other.style.getFingerprint());
+
+    // Fields without setters are read directly
+    node.style.maxWidth = 200;
+    assertTrue(node.style.getFingerprint() != other.style.getFingerprint());
+  }
+
+  @Test
+  public void testSubtreeFingerprintCombinesChildren() {
+    CSSNode root = new CSSNode();
+    CSSNode child = new CSSNode();
+    CSSNode grandChild = new CSSNode();
+    root.addChildAt(child, 0);
+    child.addChildAt(grandChild, 0);
+    long fingerprint = root.getSubtreeFingerprint();
+
+    grandChild.setStyleHeight(10);
+    long changedFingerprint = root.getSubtreeFingerprint();
+    assertTrue(fingerprint != changedFingerprint);
+
+    // Changing the already dirty node again still reaches the root
+    grandChild.setStyleHeight(20);
+    assertTrue(changedFingerprint != root.getSubtreeFingerprint());
+    grandChild.setStyleHeight(CSSConstants.UNDEFINED);
+    assertEquals(fingerprint, root.getSubtreeFingerprint());
+
+    root.addChildAt(new CSSNode(), 1);
+    assertTrue(fingerprint != root.getSubtreeFingerprint());
+  }
+
+  @Test
+  public void testSubtreeFingerprintMatchesIdenticalTrees() {
+    RandomTreeGenerator.Options options = new RandomTreeGenerator.Options();
+    CSSNode tree = new RandomTreeGenerator(42, options).generate();
+    CSSNode sameTree = new RandomTreeGenerator(42, options).generate();
+    CSSNode otherTree = new RandomTreeGenerator(43, options).generate();
+
+    assertEquals(tree.getSubtreeFingerprint(), sameTree.getSubtreeFingerprint());
+    assertTrue(tree.getSubtreeFingerprint() != otherTree.getSubtreeFingerprint());
+  }
 }
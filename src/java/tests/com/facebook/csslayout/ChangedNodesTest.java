@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ChangedNodes}.
+ */
+public class ChangedNodesTest {
+
+  private static CSSNode buildColumn() {
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(300);
+    for (int i = 0; i < 3; i++) {
+      CSSNode child = new CSSNode();
+      child.setStyleHeight(10);
+      root.addChildAt(child, i);
+    }
+    return root;
+  }
+
+  private static Set<CSSNode> markChangedNodesSeen(ChangedNodes changedNodes) {
+    Set<CSSNode> nodes = new HashSet<>();
+    for (int i = 0; i < changedNodes.size(); i++) {
+      CSSNode node = changedNodes.get(i);
+      node.markLayoutSeen();
+      nodes.add(node);
+    }
+    return nodes;
+  }
+
+  @Test
+  public void testChangedNodesDisabledByDefault() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    assertNull(layoutContext.getChangedNodes());
+
+    layoutContext.setChangedNodesEnabled(true);
+    assertNotNull(layoutContext.getChangedNodes());
+
+    layoutContext.setChangedNodesEnabled(false);
+    assertNull(layoutContext.getChangedNodes());
+  }
+
+  @Test
+  public void testReportsOnlyNodesWhoseLayoutChanged() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setChangedNodesEnabled(true);
+    CSSNode root = buildColumn();
+    root.calculateLayout(layoutContext);
+    ChangedNodes changedNodes = layoutContext.getChangedNodes();
+    assertEquals(4, markChangedNodesSeen(changedNodes).size());
+
+    // The second child grows and moves the third one, the first one stays
+    root.getChildAt(1).setStyleHeight(20);
+    root.calculateLayout(layoutContext);
+    Set<CSSNode> changed = markChangedNodesSeen(changedNodes);
+    assertEquals(3, changed.size());
+    assertTrue(changed.contains(root));
+    assertTrue(changed.contains(root.getChildAt(1)));
+    assertTrue(changed.contains(root.getChildAt(2)));
+    assertFalse(root.getChildAt(0).hasNewLayout());
+    assertEquals(30f, root.getChildAt(2).getLayoutY(), 0);
+
+    // Seeing the changed nodes is enough to change the tree again
+    root.getChildAt(0).setStyleHeight(5);
+    root.calculateLayout(layoutContext);
+    assertEquals(4, markChangedNodesSeen(changedNodes).size());
+
+    root.calculateLayout(layoutContext);
+    assertEquals(0, changedNodes.size());
+  }
+
+  @Test
+  public void testKeepsNewLayoutThatWasNotSeen() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setChangedNodesEnabled(true);
+    CSSNode root = buildColumn();
+    root.calculateLayout(layoutContext);
+
+    root.beginBatch();
+    root.setStyleHeight(100);
+    root.commit();
+    root.calculateLayout(layoutContext);
+    ChangedNodes changedNodes = layoutContext.getChangedNodes();
+    assertEquals(1, changedNodes.size());
+    assertEquals(root, changedNodes.get(0));
+    assertTrue(root.getChildAt(0).hasNewLayout());
+  }
+}
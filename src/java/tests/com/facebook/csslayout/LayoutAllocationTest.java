@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that laying out a tree that has already been built doesn't allocate any memory.
+ */
+public class LayoutAllocationTest {
+
+  private static final int WARMUP_PASSES = 1000;
+  private static final int MEASURED_WINDOWS = 10;
+  private static final int PASSES_PER_WINDOW = 100;
+
+  private static final CSSNode.MeasureFunction sTextMeasureFunction =
+      new CSSNode.MeasureFunction() {
+        @Override
+        public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+          measureOutput.width = CSSConstants.isUndefined(width) ? 100 : Math.min(width, 100);
+          measureOutput.height = measureOutput.width < 100 ? 40 : 20;
+        }
+      };
+
+  private com.sun.management.ThreadMXBean mThreadMXBean;
+
+  @Before
+  public void setUp() {
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+    mThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+    Assume.assumeTrue(mThreadMXBean.isThreadAllocatedMemorySupported());
+    mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  private static CSSNode buildTree() {
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(500);
+    root.setPadding(Spacing.ALL, 10);
+    root.setDefaultPadding(Spacing.START, 5);
+
+    for (int i = 0; i < 10; i++) {
+      CSSNode row = new CSSNode();
+      row.setFlexDirection(i % 2 == 0 ? CSSFlexDirection.ROW : CSSFlexDirection.COLUMN);
+      row.setWrap(i % 4 == 0 ? CSSWrap.WRAP : CSSWrap.NOWRAP);
+      row.setDirection(i % 3 == 0 ? CSSDirection.RTL : CSSDirection.INHERIT);
+      row.setJustifyContent(CSSJustify.values()[i % CSSJustify.values().length]);
+      row.setMargin(Spacing.VERTICAL, 4);
+      root.addChildAt(row, i);
+
+      for (int j = 0; j < 6; j++) {
+        CSSNode child = new CSSNode();
+        if (j % 3 == 0) {
+          child.setFlex(1);
+          child.style.minWidth = 20;
+        } else if (j % 3 == 1) {
+          child.setMeasureFunction(sTextMeasureFunction);
+        } else {
+          child.setStyleWidth(60);
+          child.setStyleHeight(30);
+          child.setAlignSelf(CSSAlign.CENTER);
+        }
+        child.setMargin(Spacing.START, 2);
+        row.addChildAt(child, j);
+      }
+
+      CSSNode absolute = new CSSNode();
+      absolute.setPositionType(CSSPositionType.ABSOLUTE);
+      absolute.setPositionLeft(5);
+      absolute.setPositionRight(5);
+      absolute.setPositionTop(0);
+      absolute.setPositionBottom(0);
+      row.addChildAt(absolute, row.getChildCount());
+    }
+    return root;
+  }
+
+  private static void markLayoutAppliedForTree(CSSNode root) {
+    if (root.hasNewLayout()) {
+      root.markLayoutSeen();
+    }
+    for (int i = 0; i < root.getChildCount(); i++) {
+      markLayoutAppliedForTree(root.getChildAt(i));
+    }
+  }
+
+  private static void relayout(CSSLayoutContext layoutContext, CSSNode root, CSSNode leaf, int pass) {
+    root.setStyleWidth(500 + pass % 2);
+    leaf.setStyleHeight(30 + pass % 3);
+    root.calculateLayout(layoutContext);
+  }
+
+  @Test
+  public void testWarmRelayoutDoesNotAllocate() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    CSSNode root = buildTree();
+    CSSNode leaf = root.getChildAt(0).getChildAt(2);
+    long threadId = Thread.currentThread().getId();
+
+    for (int i = 0; i < WARMUP_PASSES; i++) {
+      markLayoutAppliedForTree(root);
+      relayout(layoutContext, root, leaf, i);
+    }
+
+    // The JIT may still allocate on this thread while it compiles or deoptimizes the layout code,
+    // so it's enough for one window of passes to allocate nothing
+    long minAllocatedBytes = Long.MAX_VALUE;
+    int pass = WARMUP_PASSES;
+    for (int window = 0; window < MEASURED_WINDOWS; window++) {
+      long allocatedBytes = 0;
+      for (int i = 0; i < PASSES_PER_WINDOW; i++, pass++) {
+        markLayoutAppliedForTree(root);
+        long before = mThreadMXBean.getThreadAllocatedBytes(threadId);
+        // Carries on the sequence of the warmup, whose constraints are all in the layout caches
+        relayout(layoutContext, root, leaf, pass);
+        allocatedBytes += mThreadMXBean.getThreadAllocatedBytes(threadId) - before;
+      }
+      minAllocatedBytes = Math.min(minAllocatedBytes, allocatedBytes);
+    }
+
+    assertEquals(0, minAllocatedBytes);
+  }
+}
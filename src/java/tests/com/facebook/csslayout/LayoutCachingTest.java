@@ -237,4 +237,714 @@ public class LayoutCachingTest {
     assertTrue(c0.hasNewLayout());
     assertFalse(c0c0.hasNewLayout());
   }
+
+  private static final CSSNode.MeasureFunction sTextMeasureFunction =
+      new CSSNode.MeasureFunction() {
+        @Override
+        public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+          measureOutput.width = CSSConstants.isUndefined(width) ? 150 : Math.min(width, 150);
+          measureOutput.height = measureOutput.width < 150 ? 40 : 20;
+        }
+      };
+
+  private CSSNode buildStretchedTextTree() {
+    CSSNode root = new CSSNode();
+    for (int i = 0; i < 3; i++) {
+      CSSNode row = new CSSNode();
+      row.setPadding(Spacing.ALL, 5);
+      CSSNode text = new CSSNode();
+      text.setMeasureFunction(sTextMeasureFunction);
+      row.addChildAt(text, 0);
+      root.addChildAt(row, i);
+    }
+    return root;
+  }
+
+  private void assertSameLayout(CSSNode expected, CSSNode actual) {
+    assertEquals(expected.layout.toString(), actual.layout.toString());
+    for (int i = 0; i < expected.getChildCount(); i++) {
+      assertSameLayout(expected.getChildAt(i), actual.getChildAt(i));
+    }
+  }
+
+  @Test
+  public void testReusesLayoutsOfAlternatingConstraints() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    CSSNode root = buildStretchedTextTree();
+
+    root.setStyleWidth(100);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+    root.setStyleWidth(200);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+
+    root.setStyleWidth(100);
+    root.calculateLayout(layoutContext);
+
+    LayoutStats stats = layoutContext.getStats();
+    assertEquals(1, stats.layoutNodeImplCalls);
+    assertEquals(0, stats.measureCalls);
+    assertEquals(3, stats.cacheHits);
+    assertEquals(3, stats.subtreesRestored);
+    assertEquals(0.75f, stats.getCacheHitRate());
+    assertTreeHasNewLayout(true, root);
+
+    CSSNode expected = buildStretchedTextTree();
+    expected.setStyleWidth(100);
+    expected.calculateLayout(new CSSLayoutContext());
+    assertSameLayout(expected, root);
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedLayout() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    CSSNode root = buildStretchedTextTree();
+
+    for (int i = 0; i <= LayoutCache.MAX_ENTRIES; i++) {
+      root.setStyleWidth(100 + i);
+      root.calculateLayout(layoutContext);
+      markLayoutAppliedForTree(root);
+    }
+
+    // The first width was evicted by the last one, from the rows and their text
+    root.setStyleWidth(100);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+    LayoutStats stats = layoutContext.getStats();
+    assertEquals(0, stats.cacheHits);
+    assertEquals(6, stats.getMisses(RelayoutReason.REQUESTED_WIDTH));
+
+    // Which in turn evicted the second width, but not the last one
+    root.setStyleWidth(100 + LayoutCache.MAX_ENTRIES);
+    root.calculateLayout(layoutContext);
+    assertEquals(3, stats.cacheHits);
+    assertEquals(LayoutCache.MAX_ENTRIES, root.getChildAt(0).layoutCache.size());
+  }
+
+  @Test
+  public void testRelayoutsWhenDescendantLayoutWasEvicted() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    CSSNode root = new CSSNode();
+    CSSNode row = new CSSNode();
+    row.setPadding(Spacing.ALL, 5);
+    CSSNode text = new CSSNode();
+    text.setMeasureFunction(sTextMeasureFunction);
+    row.addChildAt(text, 0);
+    root.addChildAt(row, 0);
+
+    root.setStyleWidth(100);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+    root.setStyleWidth(200);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+
+    // Lays the text out with enough other widths to evict the one it had within the narrow row
+    for (int i = 0; i < LayoutCache.MAX_ENTRIES; i++) {
+      text.layout.resetResult();
+      LayoutEngine.layoutNode(layoutContext, text, 10 + i, null);
+      text.markLayoutSeen();
+    }
+
+    root.setStyleWidth(100);
+    root.calculateLayout(layoutContext);
+
+    LayoutStats stats = layoutContext.getStats();
+    assertEquals(1, stats.getMisses(RelayoutReason.EVICTED));
+    assertEquals(0, stats.subtreesRestored);
+
+    CSSNode expected = new CSSNode();
+    CSSNode expectedRow = new CSSNode();
+    expectedRow.setPadding(Spacing.ALL, 5);
+    CSSNode expectedText = new CSSNode();
+    expectedText.setMeasureFunction(sTextMeasureFunction);
+    expectedRow.addChildAt(expectedText, 0);
+    expected.addChildAt(expectedRow, 0);
+    expected.setStyleWidth(100);
+    expected.calculateLayout(new CSSLayoutContext());
+    assertSameLayout(expected, root);
+  }
+
+  private static class CountingMeasureFunction implements CSSNode.MeasureFunction {
+
+    private int mCalls;
+
+    @Override
+    public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+      mCalls++;
+      measureOutput.width = CSSConstants.isUndefined(width) ? 100 : width;
+      measureOutput.height = 20;
+    }
+  }
+
+  @Test
+  public void testReusesMeasureOfSameWidth() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    CSSNode node = new CSSNode();
+    CountingMeasureFunction measureFunction = new CountingMeasureFunction();
+    node.setMeasureFunction(measureFunction);
+
+    assertEquals(50f, node.measure(layoutContext, 50).width);
+    assertEquals(100f, node.measure(layoutContext, CSSConstants.UNDEFINED).width);
+    assertEquals(50f, node.measure(layoutContext, 50).width);
+    assertEquals(100f, node.measure(layoutContext, CSSConstants.UNDEFINED).width);
+    assertEquals(2, measureFunction.mCalls);
+    assertEquals(2, layoutContext.getStats().measureCalls);
+    assertEquals(2, layoutContext.getStats().measureCacheHits);
+
+    // Only keeps the most recent widths
+    for (int i = 0; i < MeasureCache.MAX_ENTRIES; i++) {
+      node.measure(layoutContext, 200 + i);
+    }
+    node.measure(layoutContext, 50);
+    assertEquals(3 + MeasureCache.MAX_ENTRIES, measureFunction.mCalls);
+  }
+
+  @Test
+  public void testInvalidatesMeasureCache() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    CSSNode root = new CSSNode();
+    CSSNode text = new CSSNode();
+    CountingMeasureFunction measureFunction = new CountingMeasureFunction();
+    text.setMeasureFunction(measureFunction);
+    root.addChildAt(text, 0);
+
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+    assertEquals(1, measureFunction.mCalls);
+
+    text.setPadding(Spacing.TOP, 10);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+    assertEquals(2, measureFunction.mCalls);
+
+    CountingMeasureFunction otherMeasureFunction = new CountingMeasureFunction();
+    text.setMeasureFunction(otherMeasureFunction);
+    root.calculateLayout(layoutContext);
+    assertEquals(2, measureFunction.mCalls);
+    assertEquals(1, otherMeasureFunction.mCalls);
+  }
+
+  private static class CountingTextMeasureFunction extends RandomTreeGenerator.TextMeasureFunction {
+
+    private int mCalls;
+
+    private CountingTextMeasureFunction() {
+      super(100, 20);
+    }
+
+    @Override
+    public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+      mCalls++;
+      super.measure(node, width, measureOutput);
+    }
+  }
+
+  @Test
+  public void testReusesMonotonicMeasureWithinFittingWidths() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    CSSNode node = new CSSNode();
+    CountingTextMeasureFunction measureFunction = new CountingTextMeasureFunction();
+    node.setMeasureFunction(measureFunction);
+
+    assertEquals(100f, node.measure(layoutContext, 300).width);
+    assertEquals(1, measureFunction.mCalls);
+    assertEquals(100f, node.measure(layoutContext, 150).width);
+    assertEquals(20f, node.measure(layoutContext, 100).height);
+    assertEquals(1, measureFunction.mCalls);
+
+    // Narrower than the text, or wider than it was measured at
+    assertEquals(40f, node.measure(layoutContext, 50).height);
+    assertEquals(2, measureFunction.mCalls);
+    node.measure(layoutContext, CSSConstants.UNDEFINED);
+    assertEquals(3, measureFunction.mCalls);
+
+    // Any width fits within an undefined one
+    node.measure(layoutContext, 1000);
+    assertEquals(3, measureFunction.mCalls);
+
+    // Without declaring it, only the same width is reused
+    CountingMeasureFunction otherMeasureFunction = new CountingMeasureFunction();
+    node.setMeasureFunction(otherMeasureFunction);
+    node.measure(layoutContext, 300);
+    node.measure(layoutContext, 300);
+    node.measure(layoutContext, 150);
+    assertEquals(2, otherMeasureFunction.mCalls);
+  }
+
+  @Test
+  public void testResolvesChangedSpacingAgain() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(100);
+    CSSNode c0 = new CSSNode();
+    c0.setMargin(Spacing.START, 10);
+    c0.setPadding(Spacing.ALL, 5);
+    root.addChildAt(c0, 0);
+
+    root.calculateLayout(layoutContext);
+    assertEquals(10f, c0.getLayoutX());
+    assertEquals(10f, c0.getLayoutHeight());
+    markLayoutAppliedForTree(root);
+
+    c0.setMargin(Spacing.START, 20);
+    c0.setPadding(Spacing.TOP, 0);
+    root.calculateLayout(layoutContext);
+    assertEquals(20f, c0.getLayoutX());
+    assertEquals(5f, c0.getLayoutHeight());
+  }
+
+  @Test
+  public void testResolvesDirectionAgainWhenParentDirectionChanges() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(100);
+    CSSNode c0 = new CSSNode();
+    c0.setFlexDirection(CSSFlexDirection.ROW);
+    root.addChildAt(c0, 0);
+    CSSNode c0c0 = new CSSNode();
+    c0c0.setStyleWidth(10);
+    c0.addChildAt(c0c0, 0);
+
+    root.calculateLayout(layoutContext);
+    assertEquals(CSSDirection.LTR, c0.getLayoutDirection());
+    assertEquals(0f, c0c0.getLayoutX());
+    markLayoutAppliedForTree(root);
+
+    root.setDirection(CSSDirection.RTL);
+    c0.setMargin(Spacing.TOP, 10);
+    root.calculateLayout(layoutContext);
+    assertEquals(CSSDirection.RTL, c0.getLayoutDirection());
+    assertEquals(90f, c0c0.getLayoutX());
+    markLayoutAppliedForTree(root);
+
+    c0.setFlexDirection(CSSFlexDirection.COLUMN);
+    root.calculateLayout(layoutContext);
+    assertEquals(90f, c0c0.getLayoutX());
+  }
+
+  private CSSNode buildOffsetTree(float offsetTop, float offsetLeft) {
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(100);
+    root.setPadding(Spacing.ALL, 5);
+    for (int i = 0; i < 3; i++) {
+      CSSNode child = new CSSNode();
+      child.setStyleHeight(10);
+      child.setMargin(Spacing.LEFT, 2);
+      root.addChildAt(child, i);
+    }
+    root.getChildAt(1).setPositionTop(offsetTop);
+    root.getChildAt(1).setPositionLeft(offsetLeft);
+    return root;
+  }
+
+  @Test
+  public void testMovesNodeWithoutLayoutWhenRelativeOffsetChanges() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    CSSNode root = buildOffsetTree(CSSConstants.UNDEFINED, CSSConstants.UNDEFINED);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+
+    CSSNode c1 = root.getChildAt(1);
+    c1.setPositionTop(7);
+    c1.setPositionLeft(-3);
+    assertFalse(c1.isDirty());
+    root.calculateLayout(layoutContext);
+
+    LayoutStats stats = layoutContext.getStats();
+    assertEquals(0, stats.layoutNodeImplCalls);
+    assertEquals(1, stats.relativePositionsUpdated);
+    assertEquals(22f, c1.getLayoutY());
+    assertEquals(4f, c1.getLayoutX());
+    assertTrue(c1.hasNewLayout());
+    assertFalse(root.getChildAt(0).hasNewLayout());
+    assertFalse(root.getChildAt(2).hasNewLayout());
+    root.markLayoutSeen();
+    c1.markLayoutSeen();
+
+    CSSNode expected = buildOffsetTree(7, -3);
+    expected.calculateLayout(new CSSLayoutContext());
+    assertSameLayout(expected, root);
+    markLayoutAppliedForTree(expected);
+
+    // The moved node is placed from its new offset when its parent is laid out again
+    root.setStyleWidth(200);
+    root.calculateLayout(layoutContext);
+    expected.setStyleWidth(200);
+    expected.calculateLayout(new CSSLayoutContext());
+    assertSameLayout(expected, root);
+  }
+
+  @Test
+  public void testLaysOutFlexibleNodeWhenRelativeOffsetChanges() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    CSSNode root = buildOffsetTree(CSSConstants.UNDEFINED, CSSConstants.UNDEFINED);
+    root.setStyleHeight(100);
+    CSSNode c1 = root.getChildAt(1);
+    c1.setFlex(1);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+
+    c1.setPositionTop(7);
+    assertTrue(c1.isDirty());
+    root.calculateLayout(layoutContext);
+
+    assertTrue(layoutContext.getStats().layoutNodeImplCalls > 0);
+    assertEquals(0, layoutContext.getStats().relativePositionsUpdated);
+    assertEquals(22f, c1.getLayoutY());
+  }
+
+  private CSSNode buildCardTree(float cardHeight, float contentHeight) {
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(300);
+    CSSNode card = new CSSNode();
+    card.setStyleWidth(100);
+    card.setStyleHeight(cardHeight);
+    card.setMargin(Spacing.TOP, 5);
+    card.setPadding(Spacing.ALL, 5);
+    CSSNode content = new CSSNode();
+    content.setStyleHeight(contentHeight);
+    card.addChildAt(content, 0);
+    root.addChildAt(card, 0);
+    CSSNode sibling = new CSSNode();
+    sibling.setStyleHeight(10);
+    root.addChildAt(sibling, 1);
+    return root;
+  }
+
+  @Test
+  public void testLaysOutFixedSizeSubtreeInPlace() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    CSSNode root = buildCardTree(50, 10);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+
+    CSSNode card = root.getChildAt(0);
+    card.getChildAt(0).setStyleHeight(30);
+    assertTrue(card.isDirty());
+    assertFalse(root.isDirty());
+    root.calculateLayout(layoutContext);
+
+    LayoutStats stats = layoutContext.getStats();
+    assertEquals(1, stats.subtreesLaidOutInPlace);
+    assertEquals(2, stats.layoutNodeImplCalls);
+    assertEquals(5f, card.getLayoutY());
+    assertEquals(30f, card.getChildAt(0).getLayoutHeight());
+    assertTrue(card.hasNewLayout());
+    assertFalse(root.getChildAt(1).hasNewLayout());
+
+    CSSNode expected = buildCardTree(50, 30);
+    expected.calculateLayout(new CSSLayoutContext());
+    assertSameLayout(expected, root);
+  }
+
+  @Test
+  public void testLaysOutParentOfChangedTopmostDirtyNode() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    CSSNode root = buildCardTree(50, 10);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+
+    CSSNode card = root.getChildAt(0);
+    card.getChildAt(0).setStyleHeight(30);
+    card.setStyleHeight(60);
+    assertTrue(root.isDirty());
+    root.calculateLayout(layoutContext);
+
+    assertEquals(0, layoutContext.getStats().subtreesLaidOutInPlace);
+    assertEquals(75f, root.getLayoutHeight());
+    markLayoutAppliedForTree(root);
+
+    // The subtree of a flexible node can change the size its parent flexes it from
+    root.setStyleHeight(100);
+    card.setFlex(1);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+    card.getChildAt(0).setStyleHeight(20);
+    assertTrue(root.isDirty());
+    root.calculateLayout(layoutContext);
+    assertEquals(0, layoutContext.getStats().subtreesLaidOutInPlace);
+    assertEquals(85f, card.getLayoutHeight());
+  }
+
+  @Test
+  public void testLaysOutFixedSizeAncestorOfDirtyNodeInPlace() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    CSSNode root = buildCardTree(50, 10);
+    CSSNode card = root.getChildAt(0);
+    CSSNode c0 = card.getChildAt(0);
+    CSSNode c0c0 = new CSSNode();
+    c0.addChildAt(c0c0, 0);
+    CSSNode c0c0c0 = new CSSNode();
+    c0c0c0.setStyleHeight(10);
+    c0c0.addChildAt(c0c0c0, 0);
+    c0.setStyleHeight(CSSConstants.UNDEFINED);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+
+    // c0c0 and c0 grow, the card doesn't
+    c0c0c0.setStyleHeight(20);
+    assertTrue(c0.isDirty());
+    assertTrue(card.isDirty());
+    assertFalse(root.isDirty());
+    root.calculateLayout(layoutContext);
+
+    assertEquals(1, layoutContext.getStats().subtreesLaidOutInPlace);
+    assertEquals(20f, c0.getLayoutHeight());
+    assertEquals(50f, card.getLayoutHeight());
+  }
+
+  @Test
+  public void testLaysOutParentOfNodeSizedByItsContent() {
+    CSSNode root = new CSSNode();
+    root.setFlexDirection(CSSFlexDirection.ROW);
+    root.setWrap(CSSWrap.WRAP);
+    root.setStyleHeight(80);
+    CSSNode tall = new CSSNode();
+    CSSNode tallContent = new CSSNode();
+    tallContent.setStyleHeight(300);
+    tall.addChildAt(tallContent, 0);
+    root.addChildAt(tall, 0);
+    CSSNode flexible = new CSSNode();
+    flexible.setFlex(1);
+    CSSNode text = new CSSNode();
+    flexible.addChildAt(text, 0);
+    root.addChildAt(flexible, 1);
+    root.calculateLayout(new CSSLayoutContext());
+    markLayoutAppliedForTree(root);
+
+    // The root is as wide as the content of the flexible node
+    text.setMeasureFunction(new RandomTreeGenerator.TextMeasureFunction(55, 17));
+    assertTrue(root.isDirty());
+    root.calculateLayout(new CSSLayoutContext());
+    assertEquals(55f, root.getLayoutWidth());
+  }
+
+  private static CSSNode buildWrappedColumnTree() {
+    CSSNode root = new CSSNode();
+    CSSNode container = new CSSNode();
+    CSSNode column = new CSSNode();
+    column.setWrap(CSSWrap.WRAP);
+    column.setStyleHeight(30);
+    CSSNode tall = new CSSNode();
+    tall.setStyleHeight(80);
+    column.addChildAt(tall, 0);
+    CSSNode flexible = new CSSNode();
+    flexible.setFlex(1);
+    column.addChildAt(flexible, 1);
+    container.addChildAt(column, 0);
+    root.addChildAt(container, 0);
+    return root;
+  }
+
+  @Test
+  public void testPlacesRestoredNodeWhereItsParentPutsItNow() {
+    CSSNode root = buildWrappedColumnTree();
+    root.calculateLayout(new CSSLayoutContext());
+    markLayoutAppliedForTree(root);
+
+    // The flexible node goes on the second line, which starts after the wider first one
+    CSSNode column = root.getChildAt(0).getChildAt(0);
+    column.getChildAt(0).setStyleWidth(250);
+    root.calculateLayout(new CSSLayoutContext());
+    assertEquals(250f, column.getChildAt(1).getLayoutX());
+
+    CSSNode expected = buildWrappedColumnTree();
+    expected.getChildAt(0).getChildAt(0).getChildAt(0).setStyleWidth(250);
+    expected.calculateLayout(new CSSLayoutContext());
+    assertSameLayout(expected, root);
+  }
+
+  private static long hashLayouts(CSSNode node, long hash) {
+    hash = 31 * hash + Float.floatToIntBits(node.getLayoutX());
+    hash = 31 * hash + Float.floatToIntBits(node.getLayoutY());
+    hash = 31 * hash + Float.floatToIntBits(node.getLayoutWidth());
+    hash = 31 * hash + Float.floatToIntBits(node.getLayoutHeight());
+    hash = 31 * hash + node.getLayoutDirection().ordinal();
+    for (int i = 0; i < node.getChildCount(); i++) {
+      hash = hashLayouts(node.getChildAt(i), hash);
+    }
+    return hash;
+  }
+
+  @Test
+  public void testLaysOutRandomTreesLikeTheUncachedEngine() {
+    // Parents lay some of their children out more than once, reusing their first layout, which
+    // must keep where they were placed then
+    RandomTreeGenerator.Options options = new RandomTreeGenerator.Options();
+    options.childChance = 0.8f;
+    options.maxNodes = 300;
+    CSSNode tree = new RandomTreeGenerator(51, options).generate();
+    tree.calculateLayout(new CSSLayoutContext());
+    assertEquals(-7f, tree.getChildAt(0).getChildAt(4).getLayoutY());
+
+    // The layouts of the first trees as laid out before their positions were cached
+    long hash = 0;
+    for (int seed = 0; seed < 200; seed++) {
+      CSSNode root = new RandomTreeGenerator(seed, options).generate();
+      root.calculateLayout(new CSSLayoutContext());
+      hash = hashLayouts(root, hash);
+    }
+    assertEquals(-4773541587821415218L, hash);
+  }
+
+  @Test
+  public void testRecordsWhyNodesAreDirty() {
+    CSSNode root = buildCardTree(50, 10);
+    root.calculateLayout(new CSSLayoutContext());
+    markLayoutAppliedForTree(root);
+
+    CSSNode card = root.getChildAt(0);
+    CSSNode content = card.getChildAt(0);
+    content.setStyleHeight(30);
+    assertTrue(content.isDirtyBecause(DirtyReason.STYLE));
+    assertTrue(card.isDirtyBecause(DirtyReason.DESCENDANT));
+    assertFalse(card.isDirtyBecause(DirtyReason.STYLE));
+
+    card.removeChildAt(0);
+    assertTrue(card.isDirtyBecause(DirtyReason.CHILDREN));
+    assertTrue(card.isDirtyBecause(DirtyReason.DESCENDANT));
+    assertFalse(root.isDirty());
+
+    root.calculateLayout(new CSSLayoutContext());
+    assertFalse(card.isDirtyBecause(DirtyReason.CHILDREN));
+  }
+
+  @Test
+  public void testLaysOutNodeInPlaceWhenChildPlacementStyleChanges() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    CSSNode root = buildCardTree(50, 10);
+    CSSNode text = new CSSNode();
+    CountingMeasureFunction measureFunction = new CountingMeasureFunction();
+    text.setMeasureFunction(measureFunction);
+    root.addChildAt(text, 2);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+    assertEquals(1, measureFunction.mCalls);
+
+    CSSNode card = root.getChildAt(0);
+    card.setJustifyContent(CSSJustify.CENTER);
+    assertTrue(card.isDirtyBecause(DirtyReason.CHILD_PLACEMENT_STYLE));
+    assertFalse(root.isDirty());
+    root.calculateLayout(layoutContext);
+
+    LayoutStats stats = layoutContext.getStats();
+    assertEquals(1, stats.subtreesLaidOutInPlace);
+    assertEquals(20f, card.getChildAt(0).getLayoutY());
+    assertFalse(root.getChildAt(1).hasNewLayout());
+    root.markLayoutSeen();
+    markLayoutAppliedForTree(card);
+
+    // Placing the children of a node doesn't measure it again
+    text.setAlignItems(CSSAlign.CENTER);
+    root.calculateLayout(layoutContext);
+    assertEquals(1, measureFunction.mCalls);
+  }
+
+  @Test
+  public void testLaysOutParentOfNodeWhoseMeasureFunctionChanged() {
+    CSSNode root = new CSSNode();
+    root.setFlexDirection(CSSFlexDirection.ROW);
+    root.setWrap(CSSWrap.WRAP);
+    root.setStyleHeight(30);
+    CSSNode text = new CSSNode();
+    text.setFlex(2);
+    text.setMeasureFunction(new CSSNode.MeasureFunction() {
+      @Override
+      public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+        measureOutput.width = 300;
+        measureOutput.height = 10;
+      }
+    });
+    root.addChildAt(text, 0);
+    root.calculateLayout(new CSSLayoutContext());
+    markLayoutAppliedForTree(root);
+    assertEquals(300f, root.getLayoutWidth());
+
+    // The root is as wide as the text was measured
+    text.setMeasureFunction(null);
+    assertTrue(text.isDirtyBecause(DirtyReason.MEASURE));
+    assertTrue(root.isDirty());
+    root.calculateLayout(new CSSLayoutContext());
+    assertEquals(0f, root.getLayoutWidth());
+  }
+
+  @Test
+  public void testMarksBatchedChangesDirtyOnCommit() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    CSSNode root = buildCardTree(50, 10);
+    root.calculateLayout(layoutContext);
+
+    // The new layouts of the card and its ancestors don't have to be seen
+    CSSNode card = root.getChildAt(0);
+    card.beginBatch();
+    card.setPositionTop(3);
+    card.setStyleHeight(60);
+    card.setJustifyContent(CSSJustify.CENTER);
+    assertFalse(card.isDirty());
+    assertFalse(root.isDirty());
+    card.commit();
+    assertTrue(card.isDirtyBecause(DirtyReason.STYLE));
+    assertTrue(card.isDirtyBecause(DirtyReason.CHILD_PLACEMENT_STYLE));
+    assertTrue(root.isDirtyBecause(DirtyReason.DESCENDANT));
+    root.calculateLayout(layoutContext);
+
+    assertTrue(root.hasNewLayout());
+    assertEquals(8f, card.getLayoutY());
+    assertEquals(25f, card.getChildAt(0).getLayoutY());
+    CSSNode expected = buildCardTree(60, 10);
+    expected.getChildAt(0).setPositionTop(3);
+    expected.getChildAt(0).setJustifyContent(CSSJustify.CENTER);
+    expected.calculateLayout(new CSSLayoutContext());
+    assertSameLayout(expected, root);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCannotLayOutUncommittedBatch() {
+    CSSNode root = buildCardTree(50, 10);
+    root.beginBatch();
+    root.setStyleWidth(200);
+    root.calculateLayout(new CSSLayoutContext());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testCannotLayOutUncommittedBatchOfDescendant() {
+    CSSNode root = buildCardTree(50, 10);
+    root.calculateLayout(new CSSLayoutContext());
+    markLayoutAppliedForTree(root);
+
+    CSSNode content = root.getChildAt(0).getChildAt(0);
+    content.beginBatch();
+    content.setStyleHeight(30);
+    root.calculateLayout(new CSSLayoutContext());
+  }
+
+  @Test
+  public void testLaysOutTreeOnceDescendantInBatchIsRemoved() {
+    CSSNode root = buildCardTree(50, 10);
+    CSSNode card = root.getChildAt(0);
+    card.getChildAt(0).beginBatch();
+    CSSNode content = card.removeChildAt(0);
+    root.calculateLayout(new CSSLayoutContext());
+    assertTrue(root.hasNewLayout());
+    markLayoutAppliedForTree(root);
+
+    // Its batch comes back with it, until it is committed
+    card.addChildAt(content, 0);
+    content.commit();
+    root.calculateLayout(new CSSLayoutContext());
+    assertEquals(10f, content.getLayoutHeight());
+  }
 }
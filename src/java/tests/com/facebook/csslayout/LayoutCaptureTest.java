@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link LayoutRecorder} and {@link LayoutReplayer}.
+ */
+public class LayoutCaptureTest {
+
+  private static final CSSNode.MeasureFunction sTextMeasureFunction =
+      new CSSNode.MeasureFunction() {
+        @Override
+        public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+          measureOutput.width = CSSConstants.isUndefined(width) ? 100 : Math.min(width, 100);
+          measureOutput.height = measureOutput.width < 100 ? 40 : 20;
+        }
+      };
+
+  private static CSSNode buildTree() {
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(300);
+    root.setPadding(Spacing.ALL, 10);
+    root.setDefaultPadding(Spacing.START, 5);
+    root.setDirection(CSSDirection.RTL);
+
+    CSSNode row = new CSSNode();
+    row.setFlexDirection(CSSFlexDirection.ROW);
+    row.setWrap(CSSWrap.WRAP);
+    row.setJustifyContent(CSSJustify.SPACE_BETWEEN);
+    row.setAlignItems(CSSAlign.FLEX_END);
+    row.style.alignContent = CSSAlign.CENTER;
+    row.setMargin(Spacing.VERTICAL, 4);
+    row.setBorder(Spacing.LEFT, 2);
+    root.addChildAt(row, 0);
+
+    CSSNode flexChild = new CSSNode();
+    flexChild.setFlex(1);
+    flexChild.style.minWidth = 30;
+    flexChild.style.maxHeight = 50;
+    row.addChildAt(flexChild, 0);
+
+    CSSNode text = new CSSNode();
+    text.setMeasureFunction(sTextMeasureFunction);
+    text.setMargin(Spacing.START, 3);
+    row.addChildAt(text, 1);
+
+    CSSNode absolute = new CSSNode();
+    absolute.setPositionType(CSSPositionType.ABSOLUTE);
+    absolute.setPositionLeft(5);
+    absolute.setPositionBottom(7);
+    absolute.setAlignSelf(CSSAlign.STRETCH);
+    absolute.setStyleHeight(12);
+    root.addChildAt(absolute, 1);
+
+    CSSNode column = new CSSNode();
+    column.setFlexDirection(CSSFlexDirection.COLUMN);
+    column.style.minHeight = 20;
+    column.style.maxWidth = 150;
+    root.addChildAt(column, 2);
+
+    CSSNode columnText = new CSSNode();
+    columnText.setMeasureFunction(sTextMeasureFunction);
+    column.addChildAt(columnText, 0);
+    return root;
+  }
+
+  private static CSSNode recordAndReplay(CSSNode root, LayoutRecorder recorder)
+      throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    recorder.write(root, out);
+    return LayoutReplayer.read(new ByteArrayInputStream(out.toByteArray()));
+  }
+
+  private static void assertSameSpacing(Spacing expected, Spacing actual) {
+    for (int i = 0; i <= Spacing.ALL; i++) {
+      assertEquals(expected.getRaw(i), actual.getRaw(i), 0);
+      assertEquals(expected.getDefault(i), actual.getDefault(i), 0);
+    }
+  }
+
+  private static void assertSameStyle(CSSStyle expected, CSSStyle actual) {
+    assertEquals(expected.direction, actual.direction);
+    assertEquals(expected.flexDirection, actual.flexDirection);
+    assertEquals(expected.justifyContent, actual.justifyContent);
+    assertEquals(expected.alignContent, actual.alignContent);
+    assertEquals(expected.alignItems, actual.alignItems);
+    assertEquals(expected.alignSelf, actual.alignSelf);
+    assertEquals(expected.positionType, actual.positionType);
+    assertEquals(expected.flexWrap, actual.flexWrap);
+    assertEquals(expected.flex, actual.flex, 0);
+    assertSameSpacing(expected.margin, actual.margin);
+    assertSameSpacing(expected.padding, actual.padding);
+    assertSameSpacing(expected.border, actual.border);
+    assertArrayEquals(expected.position, actual.position, 0);
+    assertArrayEquals(expected.dimensions, actual.dimensions, 0);
+    assertEquals(expected.minWidth, actual.minWidth, 0);
+    assertEquals(expected.minHeight, actual.minHeight, 0);
+    assertEquals(expected.maxWidth, actual.maxWidth, 0);
+    assertEquals(expected.maxHeight, actual.maxHeight, 0);
+  }
+
+  private static void assertSameTree(CSSNode expected, CSSNode actual) {
+    assertSameStyle(expected.style, actual.style);
+    assertEquals(expected.layout.toString(), actual.layout.toString());
+    assertEquals(expected.isMeasureDefined(), actual.isMeasureDefined());
+    assertEquals(expected.getChildCount(), actual.getChildCount());
+    for (int i = 0; i < expected.getChildCount(); i++) {
+      assertSameTree(expected.getChildAt(i), actual.getChildAt(i));
+    }
+  }
+
+  @Test
+  public void testReplayedTreeHasSameLayout() throws IOException {
+    LayoutRecorder recorder = new LayoutRecorder();
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setLayoutTracer(recorder);
+
+    CSSNode root = buildTree();
+    root.calculateLayout(layoutContext);
+
+    CSSNode replayed = recordAndReplay(root, recorder);
+    replayed.calculateLayout(new CSSLayoutContext());
+    assertSameTree(root, replayed);
+  }
+
+  @Test
+  public void testReplayedTreesHaveFingerprintsOfTheirStyles() throws IOException {
+    CSSNode root = buildTree();
+    root.calculateLayout(new CSSLayoutContext());
+    CSSNode replayed = recordAndReplay(root, new LayoutRecorder());
+    assertEquals(root.getSubtreeFingerprint(), replayed.getSubtreeFingerprint());
+
+    CSSNode reversed = buildTree();
+    reversed.getChildAt(0).setFlexDirection(CSSFlexDirection.ROW_REVERSE);
+    reversed.calculateLayout(new CSSLayoutContext());
+    CSSNode replayedReversed = recordAndReplay(reversed, new LayoutRecorder());
+    assertTrue(replayed.getSubtreeFingerprint() != replayedReversed.getSubtreeFingerprint());
+  }
+
+  @Test
+  public void testRecordedMeasureFunctionFallsBackToClosestWidth() throws IOException {
+    LayoutRecorder recorder = new LayoutRecorder();
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setLayoutTracer(recorder);
+
+    CSSNode root = new CSSNode();
+    CSSNode text = new CSSNode();
+    text.setMeasureFunction(sTextMeasureFunction);
+    root.addChildAt(text, 0);
+    root.setStyleWidth(60);
+    root.calculateLayout(layoutContext);
+    root.markLayoutSeen();
+    text.markLayoutSeen();
+    root.setStyleWidth(200);
+    root.calculateLayout(layoutContext);
+
+    CSSNode replayedText = recordAndReplay(root, recorder).getChildAt(0);
+    assertTrue(replayedText.getMeasureFunction() instanceof LayoutReplayer.RecordedMeasureFunction);
+    LayoutReplayer.RecordedMeasureFunction measureFunction =
+        (LayoutReplayer.RecordedMeasureFunction) replayedText.getMeasureFunction();
+    assertEquals(2, measureFunction.getRecordedCount());
+
+    MeasureOutput measureOutput = new MeasureOutput();
+    measureFunction.measure(replayedText, 60, measureOutput);
+    assertEquals(60, measureOutput.width, 0);
+    assertEquals(40, measureOutput.height, 0);
+
+    measureFunction.measure(replayedText, 70, measureOutput);
+    assertEquals(60, measureOutput.width, 0);
+
+    measureFunction.measure(replayedText, 180, measureOutput);
+    assertEquals(100, measureOutput.width, 0);
+    assertEquals(20, measureOutput.height, 0);
+  }
+
+  @Test
+  public void testRecordsCachedMeasures() throws IOException {
+    CSSNode root = new CSSNode();
+    CSSNode text = new CSSNode();
+    text.setMeasureFunction(sTextMeasureFunction);
+    root.addChildAt(text, 0);
+    root.setStyleWidth(60);
+    root.calculateLayout(new CSSLayoutContext());
+    root.markLayoutSeen();
+    text.markLayoutSeen();
+
+    // The text is laid out again but its measure comes from its cache
+    LayoutRecorder recorder = new LayoutRecorder();
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setLayoutTracer(recorder);
+    layoutContext.setStatsEnabled(true);
+    text.setAlignItems(CSSAlign.CENTER);
+    root.calculateLayout(layoutContext);
+    assertEquals(0, layoutContext.getStats().measureCalls);
+
+    CSSNode replayed = recordAndReplay(root, recorder);
+    assertTrue(replayed.getChildAt(0).getMeasureFunction()
+        instanceof LayoutReplayer.RecordedMeasureFunction);
+    replayed.calculateLayout(new CSSLayoutContext());
+    assertSameTree(root, replayed);
+  }
+
+  @Test(expected = IOException.class)
+  public void testRejectsInvalidCapture() throws IOException {
+    LayoutReplayer.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5}));
+  }
+}
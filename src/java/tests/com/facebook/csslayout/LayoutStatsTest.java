@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for {@link LayoutStats}.
+ */
+public class LayoutStatsTest {
+
+  private static final CSSNode.MeasureFunction sMeasureFunction =
+      new CSSNode.MeasureFunction() {
+        @Override
+        public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+          measureOutput.width = 10;
+          measureOutput.height = 10;
+        }
+      };
+
+  private static void markLayoutAppliedForTree(CSSNode root) {
+    if (root.hasNewLayout()) {
+      root.markLayoutSeen();
+    }
+    for (int i = 0; i < root.getChildCount(); i++) {
+      markLayoutAppliedForTree(root.getChildAt(i));
+    }
+  }
+
+  @Test
+  public void testStatsDisabledByDefault() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    assertNull(layoutContext.getStats());
+
+    layoutContext.setStatsEnabled(true);
+    assertNotNull(layoutContext.getStats());
+
+    layoutContext.setStatsEnabled(false);
+    assertNull(layoutContext.getStats());
+  }
+
+  @Test
+  public void testCountsWorkOfPass() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(100);
+    root.setStyleHeight(100);
+    root.setFlexDirection(CSSFlexDirection.ROW);
+    root.setWrap(CSSWrap.WRAP);
+
+    CSSNode flexChild = new CSSNode();
+    flexChild.setFlex(1);
+    root.addChildAt(flexChild, 0);
+
+    CSSNode text = new CSSNode();
+    text.setMeasureFunction(sMeasureFunction);
+    root.addChildAt(text, 1);
+
+    CSSNode wide = new CSSNode();
+    wide.setStyleWidth(100);
+    root.addChildAt(wide, 2);
+
+    CSSNode absolute = new CSSNode();
+    absolute.setPositionType(CSSPositionType.ABSOLUTE);
+    root.addChildAt(absolute, 3);
+
+    root.calculateLayout(layoutContext);
+    LayoutStats stats = layoutContext.getStats();
+
+    assertEquals(5, stats.nodesVisited);
+    assertEquals(5, stats.layoutNodeImplCalls);
+    assertEquals(5, stats.cacheMisses);
+    assertEquals(0, stats.cacheHits);
+    assertEquals(1, stats.measureCalls);
+    assertEquals(1, stats.flexChildrenResolved);
+    assertEquals(2, stats.wrapLinesCreated);
+    assertEquals(1, stats.absoluteChildrenPositioned);
+  }
+
+  @Test
+  public void testStatsAreResetOnEachPass() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+
+    CSSNode root = new CSSNode();
+    CSSNode c0 = new CSSNode();
+    CSSNode c1 = new CSSNode();
+    c1.setMeasureFunction(sMeasureFunction);
+    root.addChildAt(c0, 0);
+    root.addChildAt(c1, 1);
+
+    root.calculateLayout(layoutContext);
+    assertEquals(3, layoutContext.getStats().cacheMisses);
+    markLayoutAppliedForTree(root);
+
+    root.calculateLayout(layoutContext);
+    LayoutStats stats = layoutContext.getStats();
+    assertEquals(1, stats.nodesVisited);
+    assertEquals(1, stats.cacheHits);
+    assertEquals(0, stats.cacheMisses);
+    assertEquals(0, stats.layoutNodeImplCalls);
+    assertEquals(0, stats.measureCalls);
+
+    markLayoutAppliedForTree(root);
+    root.setStyleWidth(50);
+    root.calculateLayout(layoutContext);
+    assertEquals(3, stats.nodesVisited);
+    assertEquals(3, stats.cacheMisses);
+    assertEquals(1, stats.measureCalls);
+
+    stats.reset();
+    assertEquals(0, stats.nodesVisited);
+  }
+
+  @Test
+  public void testClassifiesCacheMisses() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(100);
+    CSSNode c0 = new CSSNode();
+    CSSNode c0c0 = new CSSNode();
+    CSSNode c1 = new CSSNode();
+    c1.setStyleHeight(10);
+    root.addChildAt(c0, 0);
+    root.addChildAt(c1, 1);
+    c0.addChildAt(c0c0, 0);
+
+    root.calculateLayout(layoutContext);
+    LayoutStats stats = layoutContext.getStats();
+    assertEquals(4, stats.getMisses(RelayoutReason.DIRTY));
+    assertEquals(1, stats.getMissesAtDepth(RelayoutReason.DIRTY, 0));
+    assertEquals(2, stats.getMissesAtDepth(RelayoutReason.DIRTY, 1));
+    assertEquals(1, stats.getMissesAtDepth(RelayoutReason.DIRTY, 2));
+    assertEquals(2, stats.getMaxMissDepth());
+    assertEquals(root, stats.getShallowestMiss(RelayoutReason.DIRTY));
+    assertEquals(0, stats.getShallowestMissDepth(RelayoutReason.DIRTY));
+    markLayoutAppliedForTree(root);
+
+    // Changing the root width changes the width every child is stretched to
+    root.setStyleWidth(200);
+    root.calculateLayout(layoutContext);
+    assertEquals(1, stats.getMisses(RelayoutReason.DIRTY));
+    assertEquals(3, stats.getMisses(RelayoutReason.REQUESTED_WIDTH));
+    assertEquals(2, stats.getMissesAtDepth(RelayoutReason.REQUESTED_WIDTH, 1));
+    assertEquals(1, stats.getMissesAtDepth(RelayoutReason.REQUESTED_WIDTH, 2));
+    assertEquals(0, stats.getMisses(RelayoutReason.REQUESTED_HEIGHT));
+    assertEquals(0, stats.getMisses(RelayoutReason.PARENT_MAX_WIDTH));
+    assertEquals(1, stats.getShallowestMissDepth(RelayoutReason.REQUESTED_WIDTH));
+    assertEquals(null, stats.getShallowestMiss(RelayoutReason.PARENT_MAX_WIDTH));
+    assertEquals(-1, stats.getShallowestMissDepth(RelayoutReason.PARENT_MAX_WIDTH));
+  }
+
+  @Test
+  public void testCountsMissesOfSubtreesLaidOutInPlaceAtTheirDepth() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+
+    CSSNode root = new CSSNode();
+    CSSNode c0 = new CSSNode();
+    CSSNode c0c0 = new CSSNode();
+    c0c0.setStyleWidth(10);
+    c0c0.setStyleHeight(10);
+    CSSNode c0c0c0 = new CSSNode();
+    root.addChildAt(c0, 0);
+    c0.addChildAt(c0c0, 0);
+    c0c0.addChildAt(c0c0c0, 0);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+
+    c0c0c0.setStyleHeight(5);
+    root.calculateLayout(layoutContext);
+    LayoutStats stats = layoutContext.getStats();
+    assertEquals(1, stats.subtreesLaidOutInPlace);
+    assertEquals(2, stats.getMisses(RelayoutReason.DIRTY));
+    assertEquals(1, stats.getMissesAtDepth(RelayoutReason.DIRTY, 2));
+    assertEquals(1, stats.getMissesAtDepth(RelayoutReason.DIRTY, 3));
+    assertEquals(3, stats.getMaxMissDepth());
+    assertEquals(c0c0, stats.getShallowestMiss(RelayoutReason.DIRTY));
+    assertEquals(2, stats.getShallowestMissDepth(RelayoutReason.DIRTY));
+  }
+
+  @Test
+  public void testHistogramGrowsWithDepth() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+
+    CSSNode root = new CSSNode();
+    CSSNode parent = root;
+    for (int i = 0; i < 40; i++) {
+      CSSNode child = new CSSNode();
+      parent.addChildAt(child, 0);
+      parent = child;
+    }
+
+    root.calculateLayout(layoutContext);
+    LayoutStats stats = layoutContext.getStats();
+    assertEquals(40, stats.getMaxMissDepth());
+    assertEquals(1, stats.getMissesAtDepth(RelayoutReason.DIRTY, 40));
+    assertEquals(0, stats.getMissesAtDepth(RelayoutReason.DIRTY, 41));
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link LayoutTracer}.
+ */
+public class LayoutTracerTest {
+
+  private static class RecordingTracer implements LayoutTracer {
+
+    private final List<String> mEvents = new ArrayList<>();
+    private final List<CSSNode> mExitedNodes = new ArrayList<>();
+    private final List<Boolean> mUsedCachedLayouts = new ArrayList<>();
+
+    @Override
+    public void onLayoutPassStart(CSSNode root) {
+      mEvents.add("passStart");
+    }
+
+    @Override
+    public void onLayoutPassEnd(CSSNode root, long elapsedNanos) {
+      assertTrue(elapsedNanos >= 0);
+      mEvents.add("passEnd");
+    }
+
+    @Override
+    public void onLayoutNodeEnter(CSSNode node, float parentMaxWidth) {
+      mEvents.add("enter");
+    }
+
+    @Override
+    public void onLayoutNodeExit(
+        CSSNode node,
+        float parentMaxWidth,
+        boolean usedCachedLayout,
+        long elapsedNanos) {
+      assertTrue(elapsedNanos >= 0);
+      mEvents.add("exit");
+      mExitedNodes.add(node);
+      mUsedCachedLayouts.add(usedCachedLayout);
+    }
+
+    @Override
+    public void onMeasureEnter(CSSNode node, float width) {
+      mEvents.add("measureEnter");
+    }
+
+    @Override
+    public void onMeasureExit(
+        CSSNode node,
+        float width,
+        MeasureOutput measureOutput,
+        boolean usedCachedMeasure,
+        long elapsedNanos) {
+      assertTrue(elapsedNanos >= 0);
+      assertEquals(10, measureOutput.width, 0);
+      mEvents.add("measureExit");
+    }
+  }
+
+  @Test
+  public void testTracesEachLayoutNodeCall() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    RecordingTracer tracer = new RecordingTracer();
+    layoutContext.setLayoutTracer(tracer);
+
+    CSSNode root = new CSSNode();
+    CSSNode child = new CSSNode();
+    root.addChildAt(child, 0);
+
+    root.calculateLayout(layoutContext);
+
+    assertEquals(6, tracer.mEvents.size());
+    assertEquals("passStart", tracer.mEvents.get(0));
+    assertEquals("enter", tracer.mEvents.get(1));
+    assertEquals("enter", tracer.mEvents.get(2));
+    assertEquals("exit", tracer.mEvents.get(3));
+    assertEquals("exit", tracer.mEvents.get(4));
+    assertEquals("passEnd", tracer.mEvents.get(5));
+    assertSame(child, tracer.mExitedNodes.get(0));
+    assertSame(root, tracer.mExitedNodes.get(1));
+    assertFalse(tracer.mUsedCachedLayouts.get(1));
+
+    root.markLayoutSeen();
+    child.markLayoutSeen();
+    root.calculateLayout(layoutContext);
+
+    assertEquals(10, tracer.mEvents.size());
+    assertSame(root, tracer.mExitedNodes.get(2));
+    assertTrue(tracer.mUsedCachedLayouts.get(2));
+
+    layoutContext.setLayoutTracer(null);
+    root.calculateLayout(layoutContext);
+    assertEquals(10, tracer.mEvents.size());
+  }
+
+  @Test
+  public void testTracesSubtreesLaidOutInPlaceInTheSamePass() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    RecordingTracer tracer = new RecordingTracer();
+    layoutContext.setLayoutTracer(tracer);
+
+    CSSNode root = new CSSNode();
+    CSSNode child = new CSSNode();
+    child.setStyleWidth(10);
+    child.setStyleHeight(10);
+    CSSNode grandchild = new CSSNode();
+    child.addChildAt(grandchild, 0);
+    root.addChildAt(child, 0);
+    root.calculateLayout(layoutContext);
+    root.markLayoutSeen();
+    child.markLayoutSeen();
+    grandchild.markLayoutSeen();
+    tracer.mEvents.clear();
+    tracer.mExitedNodes.clear();
+
+    grandchild.setStyleHeight(5);
+    root.calculateLayout(layoutContext);
+
+    assertEquals(8, tracer.mEvents.size());
+    assertEquals("passStart", tracer.mEvents.get(0));
+    assertEquals("enter", tracer.mEvents.get(1));
+    assertEquals("enter", tracer.mEvents.get(2));
+    assertEquals("exit", tracer.mEvents.get(3));
+    assertEquals("exit", tracer.mEvents.get(4));
+    assertEquals("enter", tracer.mEvents.get(5));
+    assertEquals("exit", tracer.mEvents.get(6));
+    assertEquals("passEnd", tracer.mEvents.get(7));
+    assertSame(child, tracer.mExitedNodes.get(1));
+    assertSame(root, tracer.mExitedNodes.get(2));
+  }
+
+  @Test
+  public void testTracesMeasureCalls() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    RecordingTracer tracer = new RecordingTracer();
+    layoutContext.setLayoutTracer(tracer);
+
+    CSSNode root = new CSSNode();
+    root.setMeasureFunction(new CSSNode.MeasureFunction() {
+      @Override
+      public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+        measureOutput.width = 10;
+        measureOutput.height = 10;
+      }
+    });
+
+    root.calculateLayout(layoutContext);
+
+    assertEquals(6, tracer.mEvents.size());
+    assertEquals("passStart", tracer.mEvents.get(0));
+    assertEquals("enter", tracer.mEvents.get(1));
+    assertEquals("measureEnter", tracer.mEvents.get(2));
+    assertEquals("measureExit", tracer.mEvents.get(3));
+    assertEquals("exit", tracer.mEvents.get(4));
+    assertEquals("passEnd", tracer.mEvents.get(5));
+  }
+}
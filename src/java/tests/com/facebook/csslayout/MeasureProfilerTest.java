@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link MeasureProfiler}.
+ */
+public class MeasureProfilerTest {
+
+  private static final long SLOW_MEASURE_NANOS = 2000000;
+
+  private static class FastMeasureFunction implements CSSNode.MeasureFunction {
+
+    @Override
+    public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+      measureOutput.width = 10;
+      measureOutput.height = 10;
+    }
+  }
+
+  private static class SlowMeasureFunction implements CSSNode.MeasureFunction {
+
+    @Override
+    public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+      long start = System.nanoTime();
+      while (System.nanoTime() - start <= SLOW_MEASURE_NANOS) {
+        // Busy wait to simulate an expensive text measurement
+      }
+      measureOutput.width = 10;
+      measureOutput.height = 10;
+    }
+  }
+
+  @Test
+  public void testRecordsHistogramPerClass() {
+    MeasureProfiler profiler = new MeasureProfiler(SLOW_MEASURE_NANOS);
+    final List<CSSNode> slowNodes = new ArrayList<>();
+    profiler.setSlowMeasureListener(new MeasureProfiler.SlowMeasureListener() {
+      @Override
+      public void onSlowMeasure(CSSNode node, float width, long elapsedNanos) {
+        slowNodes.add(node);
+      }
+    });
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setLayoutTracer(profiler);
+
+    CSSNode root = new CSSNode();
+    CSSNode fast0 = new CSSNode();
+    fast0.setMeasureFunction(new FastMeasureFunction());
+    CSSNode fast1 = new CSSNode();
+    fast1.setMeasureFunction(new FastMeasureFunction());
+    CSSNode slow = new CSSNode();
+    slow.setMeasureFunction(new SlowMeasureFunction());
+    root.addChildAt(fast0, 0);
+    root.addChildAt(fast1, 1);
+    root.addChildAt(slow, 2);
+    root.calculateLayout(layoutContext);
+
+    MeasureProfiler.MeasureHistogram fastHistogram =
+        profiler.getHistogram(FastMeasureFunction.class);
+    assertEquals(2, fastHistogram.getCount());
+    assertEquals(0, fastHistogram.getSlowCount());
+
+    MeasureProfiler.MeasureHistogram slowHistogram =
+        profiler.getHistogram(SlowMeasureFunction.class);
+    assertEquals(1, slowHistogram.getCount());
+    assertEquals(1, slowHistogram.getSlowCount());
+    assertTrue(slowHistogram.getMaxNanos() > SLOW_MEASURE_NANOS);
+    assertTrue(slowHistogram.getPercentileNanos(0.5) > SLOW_MEASURE_NANOS);
+    assertEquals(
+        1,
+        slowHistogram.getBucketCount(
+            MeasureProfiler.MeasureHistogram.getBucket(slowHistogram.getMaxNanos())));
+
+    assertEquals(1, profiler.getSlowMeasureCount());
+    assertEquals(1, slowNodes.size());
+    assertSame(slow, slowNodes.get(0));
+
+    profiler.reset();
+    assertNull(profiler.getHistogram(FastMeasureFunction.class));
+  }
+
+  @Test
+  public void testCountsRepeatedMeasuresInPass() {
+    MeasureProfiler profiler = new MeasureProfiler(Long.MAX_VALUE);
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setLayoutTracer(profiler);
+
+    CSSNode root = new CSSNode();
+    CSSNode text = new CSSNode();
+    text.setMeasureFunction(new FastMeasureFunction());
+    root.addChildAt(text, 0);
+    root.calculateLayout(layoutContext);
+    assertEquals(0, profiler.getRepeatedMeasureCount());
+
+    // Simulates a second call with the same width within the pass, as done by a parent measuring
+    // its children before laying them out
+    profiler.onLayoutPassStart(root);
+    MeasureOutput measureOutput = new MeasureOutput();
+    profiler.onMeasureExit(text, 100, measureOutput, false, 10);
+    profiler.onMeasureExit(text, 50, measureOutput, false, 10);
+    profiler.onMeasureExit(text, 100, measureOutput, false, 10);
+    profiler.onLayoutPassEnd(root, 30);
+    assertEquals(1, profiler.getRepeatedMeasureCount());
+    assertEquals(1, profiler.getHistogram(FastMeasureFunction.class).getRepeatedCount());
+    assertEquals(4, profiler.getHistogram(FastMeasureFunction.class).getCount());
+
+    // A new pass starts from scratch
+    profiler.onLayoutPassStart(root);
+    profiler.onMeasureExit(text, 100, measureOutput, false, 10);
+    profiler.onLayoutPassEnd(root, 10);
+    assertEquals(0, profiler.getRepeatedMeasureCount());
+  }
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static junit.framework.Assert.*;
+
+/**
+ * Tests for {@link PersistentLayoutCache}.
+ */
+public class PersistentLayoutCacheTest {
+
+  @Rule
+  public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+  private static class KeyedTextMeasureFunction implements CSSNode.KeyedMeasureFunction {
+
+    private final String mText;
+    private int mCalls;
+
+    private KeyedTextMeasureFunction(String text) {
+      mText = text;
+    }
+
+    @Override
+    public Object getMeasureKey(CSSNode node) {
+      return mText;
+    }
+
+    @Override
+    public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+      mCalls++;
+      measureOutput.width = 10 * mText.length();
+      measureOutput.height = 20;
+    }
+  }
+
+  private static CSSNode buildRandomTree(int seed) {
+    RandomTreeGenerator.Options options = new RandomTreeGenerator.Options();
+    options.childChance = 0.7f;
+    options.maxNodes = 100;
+    CSSNode root = new RandomTreeGenerator(seed, options).generate();
+    root.setStyleWidth(500);
+    return root;
+  }
+
+  private static CSSNode buildTextTree(CSSNode.MeasureFunction measureFunction) {
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(200);
+    CSSNode textNode = new CSSNode();
+    textNode.setMeasureFunction(measureFunction);
+    root.addChildAt(textNode, 0);
+    return root;
+  }
+
+  private File getFile() {
+    return new File(mTemporaryFolder.getRoot(), "layouts");
+  }
+
+  private void store(CSSNode root) throws IOException {
+    root.calculateLayout(new CSSLayoutContext());
+    PersistentLayoutCache cache = new PersistentLayoutCache(getFile());
+    assertTrue(cache.put(root));
+    cache.save();
+  }
+
+  @Test
+  public void testHydratesIdenticalTree() throws IOException {
+    CSSNode stored = buildRandomTree(7);
+    store(stored);
+
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    PersistentLayoutCache cache = new PersistentLayoutCache(getFile());
+    assertEquals(1, cache.size());
+    CSSNode root = buildRandomTree(7);
+    assertTrue(cache.hydrate(layoutContext, root));
+    assertEquals(1, cache.getHitCount());
+
+    root.calculateLayout(layoutContext);
+    assertEquals(0, layoutContext.getStats().layoutNodeImplCalls);
+    assertEquals(0, layoutContext.getStats().measureCalls);
+    assertEquals(stored.toString(), root.toString());
+  }
+
+  @Test
+  public void testDoesNotHydrateChangedTree() throws IOException {
+    store(buildRandomTree(7));
+
+    PersistentLayoutCache cache = new PersistentLayoutCache(getFile());
+    CSSNode root = buildRandomTree(7);
+    root.setStyleWidth(400);
+    assertFalse(cache.hydrate(new CSSLayoutContext(), root));
+    assertFalse(cache.hydrate(new CSSLayoutContext(), buildRandomTree(8)));
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  public void testChecksMeasureResults() throws IOException {
+    store(buildTextTree(new RandomTreeGenerator.TextMeasureFunction(50, 20)));
+
+    PersistentLayoutCache cache = new PersistentLayoutCache(getFile());
+    CSSNode root = buildTextTree(new RandomTreeGenerator.TextMeasureFunction(60, 20));
+    assertFalse(cache.hydrate(new CSSLayoutContext(), root));
+    root = buildTextTree(new RandomTreeGenerator.TextMeasureFunction(50, 20));
+    assertTrue(cache.hydrate(new CSSLayoutContext(), root));
+  }
+
+  @Test
+  public void testChecksMeasureKeys() throws IOException {
+    store(buildTextTree(new KeyedTextMeasureFunction("hello")));
+
+    PersistentLayoutCache cache = new PersistentLayoutCache(getFile());
+    KeyedTextMeasureFunction otherText = new KeyedTextMeasureFunction("world");
+    assertFalse(cache.hydrate(new CSSLayoutContext(), buildTextTree(otherText)));
+
+    // Measure results are trusted for the same key
+    KeyedTextMeasureFunction sameText = new KeyedTextMeasureFunction("hello");
+    CSSNode root = buildTextTree(sameText);
+    assertTrue(cache.hydrate(new CSSLayoutContext(), root));
+    root.calculateLayout(new CSSLayoutContext());
+    assertEquals(0, sameText.mCalls);
+    assertEquals(20f, root.getChildAt(0).getLayoutHeight());
+  }
+
+  @Test
+  public void testKeepsTreesAcrossSaves() throws IOException {
+    store(buildRandomTree(7));
+    store(buildRandomTree(8));
+    store(buildRandomTree(7));
+
+    PersistentLayoutCache cache = new PersistentLayoutCache(getFile());
+    assertEquals(2, cache.size());
+    assertTrue(cache.hydrate(new CSSLayoutContext(), buildRandomTree(7)));
+    assertTrue(cache.hydrate(new CSSLayoutContext(), buildRandomTree(8)));
+  }
+
+  @Test
+  public void testIgnoresOtherFiles() throws IOException {
+    try (FileOutputStream out = new FileOutputStream(getFile())) {
+      out.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+    }
+
+    PersistentLayoutCache cache = new PersistentLayoutCache(getFile());
+    assertEquals(0, cache.size());
+    assertFalse(cache.hydrate(new CSSLayoutContext(), buildRandomTree(7)));
+
+    CSSNode root = buildRandomTree(7);
+    root.calculateLayout(new CSSLayoutContext());
+    assertTrue(cache.put(root));
+    cache.save();
+    assertEquals(1, new PersistentLayoutCache(getFile()).size());
+  }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RandomTreeGenerator}.
+ */
+public class RandomTreeGeneratorTest {
+
+  private static byte[] capture(CSSNode root) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new LayoutRecorder().write(root, out);
+    return out.toByteArray();
+  }
+
+  private static int countNodes(CSSNode node) {
+    int count = 1;
+    for (int i = 0; i < node.getChildCount(); i++) {
+      count += countNodes(node.getChildAt(i));
+    }
+    return count;
+  }
+
+  private static int getDepth(CSSNode node) {
+    int depth = 0;
+    for (int i = 0; i < node.getChildCount(); i++) {
+      depth = Math.max(depth, getDepth(node.getChildAt(i)) + 1);
+    }
+    return depth;
+  }
+
+  private static void markLayoutAppliedForTree(CSSNode root) {
+    if (root.hasNewLayout()) {
+      root.markLayoutSeen();
+    }
+    for (int i = 0; i < root.getChildCount(); i++) {
+      markLayoutAppliedForTree(root.getChildAt(i));
+    }
+  }
+
+  private static void assertSameLayout(CSSNode expected, CSSNode actual) {
+    assertEquals(expected.layout.toString(), actual.layout.toString());
+    for (int i = 0; i < expected.getChildCount(); i++) {
+      assertSameLayout(expected.getChildAt(i), actual.getChildAt(i));
+    }
+  }
+
+  @Test
+  public void testSameSeedGeneratesSameTree() throws IOException {
+    byte[] first = capture(new RandomTreeGenerator(42).generate());
+    byte[] second = capture(new RandomTreeGenerator(42).generate());
+    byte[] other = capture(new RandomTreeGenerator(43).generate());
+
+    assertArrayEquals(first, second);
+    assertFalse(Arrays.equals(first, other));
+  }
+
+  @Test
+  public void testRespectsKnobs() {
+    RandomTreeGenerator.Options options = new RandomTreeGenerator.Options();
+    options.childChance = 0.95f;
+    options.maxChildren = 10;
+    options.maxDepth = 6;
+    options.maxNodes = 5000;
+    options.measureRatio = 0;
+    options.absoluteRatio = 0;
+    CSSNode root = new RandomTreeGenerator(7, options).generate();
+
+    assertEquals(5000, countNodes(root));
+    assertTrue(getDepth(root) <= 6);
+    assertFalse(hasAbsoluteNode(root));
+    assertFalse(hasTextNode(root));
+  }
+
+  @Test
+  public void testTextNodesAreLeaves() {
+    RandomTreeGenerator.Options options = new RandomTreeGenerator.Options();
+    options.childChance = 0.9f;
+    options.measureRatio = 0.5f;
+    CSSNode root = new RandomTreeGenerator(3, options).generate();
+
+    assertTrue(hasTextNode(root));
+    assertTextNodesAreLeaves(root);
+  }
+
+  @Test
+  public void testCachedRelayoutMatchesFreshLayout() {
+    RandomTreeGenerator.Options options = new RandomTreeGenerator.Options();
+    options.childChance = 0.7f;
+    options.maxNodes = 300;
+    for (int seed = 0; seed < 20; seed++) {
+      CSSNode relaidOut = new RandomTreeGenerator(seed, options).generate();
+      relaidOut.setStyleWidth(500);
+      relaidOut.calculateLayout(new CSSLayoutContext());
+      markLayoutAppliedForTree(relaidOut);
+      relaidOut.setStyleWidth(320);
+      relaidOut.calculateLayout(new CSSLayoutContext());
+
+      CSSNode fresh = new RandomTreeGenerator(seed, options).generate();
+      fresh.setStyleWidth(320);
+      fresh.calculateLayout(new CSSLayoutContext());
+
+      assertSameLayout(fresh, relaidOut);
+    }
+  }
+
+  private static boolean hasAbsoluteNode(CSSNode node) {
+    if (node.style.positionType == CSSPositionType.ABSOLUTE) {
+      return true;
+    }
+    for (int i = 0; i < node.getChildCount(); i++) {
+      if (hasAbsoluteNode(node.getChildAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasTextNode(CSSNode node) {
+    if (node.isMeasureDefined()) {
+      return true;
+    }
+    for (int i = 0; i < node.getChildCount(); i++) {
+      if (hasTextNode(node.getChildAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void assertTextNodesAreLeaves(CSSNode node) {
+    if (node.isMeasureDefined()) {
+      assertEquals(0, node.getChildCount());
+    }
+    for (int i = 0; i < node.getChildCount(); i++) {
+      assertTextNodesAreLeaves(node.getChildAt(i));
+    }
+  }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+/**
+ * Tests for {@link SharedMeasureCache}.
+ */
+public class SharedMeasureCacheTest {
+
+  private static class TextMeasureFunction implements CSSNode.KeyedMeasureFunction {
+
+    private final @Nullable String mText;
+    private final AtomicInteger mCalls;
+
+    private TextMeasureFunction(@Nullable String text, AtomicInteger calls) {
+      mText = text;
+      mCalls = calls;
+    }
+
+    @Override
+    public @Nullable Object getMeasureKey(CSSNode node) {
+      return mText;
+    }
+
+    @Override
+    public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+      mCalls.incrementAndGet();
+      float textWidth = 10 * (mText == null ? 0 : mText.length());
+      if (CSSConstants.isUndefined(width) || width >= textWidth) {
+        measureOutput.width = textWidth;
+        measureOutput.height = 20;
+      } else {
+        measureOutput.width = width;
+        measureOutput.height = 20 * (float) Math.ceil(textWidth / width);
+      }
+    }
+  }
+
+  private static CSSNode buildTree(String[] texts, AtomicInteger calls) {
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(100);
+    for (int i = 0; i < texts.length; i++) {
+      CSSNode text = new CSSNode();
+      text.setMeasureFunction(new TextMeasureFunction(texts[i], calls));
+      root.addChildAt(text, i);
+    }
+    return root;
+  }
+
+  private static void assertSameLayout(CSSNode expected, CSSNode actual) {
+    assertEquals(expected.layout.toString(), actual.layout.toString());
+    assertEquals(expected.getChildCount(), actual.getChildCount());
+    for (int i = 0; i < expected.getChildCount(); i++) {
+      assertSameLayout(expected.getChildAt(i), actual.getChildAt(i));
+    }
+  }
+
+  @Test
+  public void testSharesMeasuresBetweenContexts() {
+    SharedMeasureCache cache = new SharedMeasureCache(64, 4);
+    String[] texts = {"hello", "a longer line of text", "hello"};
+    AtomicInteger calls = new AtomicInteger();
+
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setSharedMeasureCache(cache);
+    layoutContext.setStatsEnabled(true);
+    CSSNode root = buildTree(texts, calls);
+    root.calculateLayout(layoutContext);
+    int callsOfFirstTree = calls.get();
+    // The second "hello" reuses the measures of the first one
+    assertTrue(layoutContext.getStats().sharedMeasureCacheHits > 0);
+
+    CSSLayoutContext otherLayoutContext = new CSSLayoutContext();
+    otherLayoutContext.setSharedMeasureCache(cache);
+    otherLayoutContext.setStatsEnabled(true);
+    CSSNode otherRoot = buildTree(texts, calls);
+    otherRoot.calculateLayout(otherLayoutContext);
+    assertEquals(callsOfFirstTree, calls.get());
+    assertEquals(0, otherLayoutContext.getStats().measureCalls);
+    assertEquals(callsOfFirstTree, cache.getMissCount());
+    assertEquals(
+        layoutContext.getStats().sharedMeasureCacheHits +
+            otherLayoutContext.getStats().sharedMeasureCacheHits,
+        cache.getHitCount());
+
+    assertSameLayout(root, otherRoot);
+  }
+
+  @Test
+  public void testDoesNotShareWithoutKey() {
+    SharedMeasureCache cache = new SharedMeasureCache(64, 4);
+    AtomicInteger calls = new AtomicInteger();
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setSharedMeasureCache(cache);
+
+    buildTree(new String[] {null, null}, calls).calculateLayout(layoutContext);
+
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getMissCount());
+    assertTrue(calls.get() >= 2);
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedMeasure() {
+    SharedMeasureCache cache = new SharedMeasureCache(1, 1);
+    MeasureOutput measureOutput = new MeasureOutput();
+    measureOutput.width = 10;
+    measureOutput.height = 20;
+
+    for (int i = 0; i < SharedMeasureCache.WAYS; i++) {
+      cache.put("text", i, measureOutput);
+    }
+    assertTrue(cache.get("text", 0, measureOutput));
+    cache.put("text", SharedMeasureCache.WAYS, measureOutput);
+
+    assertEquals(SharedMeasureCache.WAYS, cache.size());
+    assertEquals(1, cache.getEvictionCount());
+    assertTrue(cache.get("text", 0, measureOutput));
+    assertFalse(cache.get("text", 1, measureOutput));
+    assertFalse(cache.get("other text", 0, measureOutput));
+
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testLaysOutOnSeveralThreads() throws InterruptedException {
+    final SharedMeasureCache cache = new SharedMeasureCache(256, 4);
+    final String[] texts = new String[50];
+    for (int i = 0; i < texts.length; i++) {
+      texts[i] = "text " + (i % 20) + " of some length";
+    }
+    CSSNode expected = buildTree(texts, new AtomicInteger());
+    expected.calculateLayout(new CSSLayoutContext());
+    final String expectedLayout = expected.toString();
+
+    final AtomicReference<String> mismatch = new AtomicReference<>();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          CSSLayoutContext layoutContext = new CSSLayoutContext();
+          layoutContext.setSharedMeasureCache(cache);
+          for (int i = 0; i < 50; i++) {
+            CSSNode root = buildTree(texts, new AtomicInteger());
+            root.calculateLayout(layoutContext);
+            String layout = root.toString();
+            if (!expectedLayout.equals(layout)) {
+              mismatch.set(layout);
+            }
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertNull(mismatch.get());
+    assertTrue(cache.getHitCount() > 0);
+  }
+}
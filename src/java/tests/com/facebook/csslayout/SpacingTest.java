@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link Spacing}.
+ */
+public class SpacingTest {
+
+  private static final int COLUMN = CSSFlexDirection.COLUMN.ordinal();
+  private static final int COLUMN_REVERSE = CSSFlexDirection.COLUMN_REVERSE.ordinal();
+  private static final int ROW = CSSFlexDirection.ROW.ordinal();
+  private static final int ROW_REVERSE = CSSFlexDirection.ROW_REVERSE.ordinal();
+
+  @Test
+  public void testResolvesEdgesOfAliases() {
+    Spacing spacing = new Spacing();
+    assertEquals(0, spacing.resolvedLeading[ROW], 0);
+
+    spacing.set(Spacing.ALL, 1);
+    spacing.set(Spacing.VERTICAL, 2);
+    spacing.set(Spacing.BOTTOM, 3);
+    assertEquals(2, spacing.resolvedLeading[COLUMN], 0);
+    assertEquals(3, spacing.resolvedTrailing[COLUMN], 0);
+    assertEquals(3, spacing.resolvedLeading[COLUMN_REVERSE], 0);
+    assertEquals(2, spacing.resolvedTrailing[COLUMN_REVERSE], 0);
+    assertEquals(1, spacing.resolvedLeading[ROW], 0);
+    assertEquals(1, spacing.resolvedTrailing[ROW_REVERSE], 0);
+
+    spacing.set(Spacing.VERTICAL, CSSConstants.UNDEFINED);
+    assertEquals(1, spacing.resolvedLeading[COLUMN], 0);
+  }
+
+  @Test
+  public void testResolvesStartAndEndForEachDirection() {
+    Spacing spacing = new Spacing();
+    spacing.set(Spacing.LEFT, 1);
+    spacing.set(Spacing.RIGHT, 2);
+    spacing.set(Spacing.START, 3);
+
+    // Left to right
+    assertEquals(3, spacing.resolvedLeading[ROW], 0);
+    assertEquals(2, spacing.resolvedTrailing[ROW], 0);
+    // Right to left
+    assertEquals(3, spacing.resolvedLeading[ROW_REVERSE], 0);
+    assertEquals(1, spacing.resolvedTrailing[ROW_REVERSE], 0);
+
+    spacing.set(Spacing.END, 4);
+    assertEquals(4, spacing.resolvedTrailing[ROW], 0);
+    assertEquals(4, spacing.resolvedTrailing[ROW_REVERSE], 0);
+  }
+
+  @Test
+  public void testResolvesDefaults() {
+    Spacing spacing = new Spacing();
+    spacing.setDefault(Spacing.LEFT, 5);
+    spacing.setDefault(Spacing.TOP, 6);
+    assertEquals(5, spacing.resolvedLeading[ROW], 0);
+    assertEquals(5, spacing.resolvedTrailing[ROW_REVERSE], 0);
+    assertEquals(6, spacing.resolvedLeading[COLUMN], 0);
+
+    spacing.set(Spacing.HORIZONTAL, 7);
+    assertEquals(7, spacing.resolvedLeading[ROW], 0);
+    assertEquals(6, spacing.resolvedLeading[COLUMN], 0);
+  }
+}
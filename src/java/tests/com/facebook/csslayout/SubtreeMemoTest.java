@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2014, Facebook, Inc.
+ * All rights reserved.
+ *
+ * This source code is licensed under the BSD-style license found in the
+ * LICENSE file in the root directory of this source tree. An additional grant
+ * of patent rights can be found in the PATENTS file in the same directory.
+ */
+package com.facebook.csslayout;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.*;
+
+/**
+ * Tests for {@link SubtreeMemo}.
+ */
+public class SubtreeMemoTest {
+
+  private static final int ROW_COUNT = 10;
+
+  private static class TextMeasureFunction extends RandomTreeGenerator.TextMeasureFunction {
+
+    private int mCalls;
+
+    private TextMeasureFunction(float textWidth) {
+      super(textWidth, 20);
+    }
+
+    @Override
+    public void measure(CSSNode node, float width, MeasureOutput measureOutput) {
+      mCalls++;
+      super.measure(node, width, measureOutput);
+    }
+  }
+
+  /**
+   * A list of rows made of an icon and a text, the texts being as wide as the given widths.
+   */
+  private static CSSNode buildList(TextMeasureFunction[] texts) {
+    CSSNode root = new CSSNode();
+    root.setStyleWidth(200);
+    for (int i = 0; i < texts.length; i++) {
+      CSSNode row = new CSSNode();
+      row.setFlexDirection(CSSFlexDirection.ROW);
+      row.setPadding(Spacing.ALL, 4);
+      CSSNode icon = new CSSNode();
+      icon.setStyleWidth(20);
+      icon.setStyleHeight(20);
+      icon.setMargin(Spacing.RIGHT, 4);
+      CSSNode text = new CSSNode();
+      text.setFlex(1);
+      text.setMeasureFunction(texts[i]);
+      row.addChildAt(icon, 0);
+      row.addChildAt(text, 1);
+      root.addChildAt(row, i);
+    }
+    return root;
+  }
+
+  private static TextMeasureFunction[] buildTexts(float textWidth) {
+    TextMeasureFunction[] texts = new TextMeasureFunction[ROW_COUNT];
+    for (int i = 0; i < ROW_COUNT; i++) {
+      texts[i] = new TextMeasureFunction(textWidth);
+    }
+    return texts;
+  }
+
+  private static void markLayoutAppliedForTree(CSSNode root) {
+    if (root.hasNewLayout()) {
+      root.markLayoutSeen();
+    }
+    for (int i = 0; i < root.getChildCount(); i++) {
+      markLayoutAppliedForTree(root.getChildAt(i));
+    }
+  }
+
+  private static void assertSameLayout(CSSNode expected, CSSNode actual) {
+    assertEquals(expected.layout.toString(), actual.layout.toString());
+    assertEquals(expected.getChildCount(), actual.getChildCount());
+    for (int i = 0; i < expected.getChildCount(); i++) {
+      assertSameLayout(expected.getChildAt(i), actual.getChildAt(i));
+    }
+  }
+
+  private static CSSNode layOutWithoutMemo(CSSNode root) {
+    root.calculateLayout(new CSSLayoutContext());
+    return root;
+  }
+
+  @Test
+  public void testReusesLayoutOfIdenticalRows() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    SubtreeMemo subtreeMemo = new SubtreeMemo(16, 8);
+    layoutContext.setSubtreeMemo(subtreeMemo);
+    TextMeasureFunction[] texts = buildTexts(50);
+    CSSNode root = buildList(texts);
+
+    root.calculateLayout(layoutContext);
+
+    // Only the first row is laid out, the others only measure their text to check it's the same
+    assertEquals(ROW_COUNT - 1, layoutContext.getStats().subtreeMemoHits);
+    assertEquals(ROW_COUNT - 1, subtreeMemo.getHitCount());
+    assertEquals(1, subtreeMemo.getStoreCount());
+    assertEquals(1, subtreeMemo.size());
+    for (int i = 1; i < ROW_COUNT; i++) {
+      assertEquals(texts[0].mCalls, texts[i].mCalls);
+    }
+    assertSameLayout(layOutWithoutMemo(buildList(buildTexts(50))), root);
+    assertTrue(root.getChildAt(ROW_COUNT - 1).getChildAt(1).hasNewLayout());
+  }
+
+  @Test
+  public void testLaysOutRowsWithDifferentMeasures() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    SubtreeMemo subtreeMemo = new SubtreeMemo(16, 8);
+    layoutContext.setSubtreeMemo(subtreeMemo);
+    TextMeasureFunction[] texts = buildTexts(50);
+    texts[1] = new TextMeasureFunction(400);
+    CSSNode root = buildList(texts);
+
+    root.calculateLayout(layoutContext);
+
+    TextMeasureFunction[] expectedTexts = buildTexts(50);
+    expectedTexts[1] = new TextMeasureFunction(400);
+    assertSameLayout(layOutWithoutMemo(buildList(expectedTexts)), root);
+    assertEquals(ROW_COUNT - 2, subtreeMemo.getHitCount());
+    assertTrue(subtreeMemo.getMissCount() > 0);
+  }
+
+  @Test
+  public void testRelayoutsRowChangedAfterReuse() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setSubtreeMemo(new SubtreeMemo(16, 8));
+    CSSNode root = buildList(buildTexts(50));
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+
+    // The changed row no longer matches the others, and the rows reused the layout of the first
+    // one are cached like the ones that were laid out
+    root.getChildAt(3).setPadding(Spacing.ALL, 10);
+    root.setStyleWidth(300);
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+    root.setStyleWidth(200);
+    root.calculateLayout(layoutContext);
+
+    CSSNode expected = buildList(buildTexts(50));
+    expected.getChildAt(3).setPadding(Spacing.ALL, 10);
+    assertSameLayout(layOutWithoutMemo(expected), root);
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedLayout() {
+    SubtreeMemo subtreeMemo = new SubtreeMemo(SubtreeMemo.WAYS, 8);
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setSubtreeMemo(subtreeMemo);
+    CSSNode root = buildList(buildTexts(50));
+
+    for (int i = 0; i <= SubtreeMemo.WAYS; i++) {
+      root.setStyleWidth(200 + 10 * i);
+      root.calculateLayout(layoutContext);
+      markLayoutAppliedForTree(root);
+    }
+    assertEquals(SubtreeMemo.WAYS, subtreeMemo.size());
+    assertEquals(1, subtreeMemo.getEvictionCount());
+
+    subtreeMemo.clear();
+    assertEquals(0, subtreeMemo.size());
+  }
+
+  @Test
+  public void testMovesChildOfReusedRow() {
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setStatsEnabled(true);
+    layoutContext.setSubtreeMemo(new SubtreeMemo(16, 8));
+    CSSNode root = buildList(buildTexts(50));
+    root.calculateLayout(layoutContext);
+    markLayoutAppliedForTree(root);
+
+    // The row was never laid out, so its axes are only known from its style
+    CSSNode icon = root.getChildAt(ROW_COUNT - 1).getChildAt(0);
+    icon.setPositionLeft(13);
+    root.calculateLayout(layoutContext);
+    assertEquals(1, layoutContext.getStats().relativePositionsUpdated);
+    assertEquals(17f, icon.getLayoutX(), 0);
+
+    CSSNode expected = buildList(buildTexts(50));
+    expected.getChildAt(ROW_COUNT - 1).getChildAt(0).setPositionLeft(13);
+    assertSameLayout(layOutWithoutMemo(expected), root);
+  }
+
+  @Test
+  public void testSkipsLargeSubtrees() {
+    SubtreeMemo subtreeMemo = new SubtreeMemo(16, 2);
+    CSSLayoutContext layoutContext = new CSSLayoutContext();
+    layoutContext.setSubtreeMemo(subtreeMemo);
+    CSSNode root = buildList(buildTexts(50));
+
+    root.calculateLayout(layoutContext);
+
+    assertEquals(0, subtreeMemo.getStoreCount());
+    assertEquals(0, subtreeMemo.getHitCount());
+  }
+}